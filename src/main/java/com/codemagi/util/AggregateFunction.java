@@ -0,0 +1,55 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+/**
+ * The aggregates GroupBy can compute for each group. Null and empty ("")
+ * values are ignored by every function except COUNT of all rows.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public enum AggregateFunction {
+
+    /**
+     * The number of non-null values in the column, or the number of rows in
+     * the group if the column is negative. Returns a Long.
+     */
+    COUNT,
+    /**
+     * The sum of the numeric values in the column. Returns a Long if every
+     * value is a whole number, otherwise a Double.
+     */
+    SUM,
+    /**
+     * The smallest value in the column. Numbers (and numeric Strings) are
+     * compared numerically, other values as by ColumnComparator.
+     */
+    MIN,
+    /**
+     * The largest value in the column, compared as for MIN.
+     */
+    MAX,
+    /**
+     * The average of the numeric values in the column, as a Double.
+     */
+    AVG,
+    /**
+     * The number of distinct non-null values in the column. Returns a Long.
+     */
+    COUNT_DISTINCT;
+
+}
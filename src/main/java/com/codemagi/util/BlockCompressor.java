@@ -0,0 +1,240 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.io.IOException;
+
+/**
+ * Fast block compression in pure Java, using the LZ4 block layout: a sequence
+ * of tokens, each giving a run of literal bytes followed by a back-reference
+ * of at least 4 bytes to earlier output. Matches are found with a single
+ * hash table lookup per position, which trades compression ratio for speed.
+ * <P>
+ * The compressor is meant for repetitive data such as snapshot files. Each
+ * block is compressed independently, and the uncompressed length of a block
+ * must be stored by the caller.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class BlockCompressor {
+
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 65535;
+
+    //the last bytes of a block are always written as literals
+    private static final int LAST_LITERALS = 5;
+    private static final int MIN_LENGTH = 12;
+
+    private static final int HASH_BITS = 14;
+    private static final int HASH_SHIFT = 32 - HASH_BITS;
+
+    private BlockCompressor() {
+    }
+
+    /**
+     * Returns the largest number of bytes that compressing srcLength bytes can
+     * produce.
+     */
+    public static int maxCompressedLength(int srcLength) {
+        return srcLength + srcLength / 255 + 16;
+    }
+
+    /**
+     * Compresses a block of bytes.
+     *
+     * @param src Array holding the bytes to compress
+     * @param srcOff Offset of the first byte to compress
+     * @param srcLen Number of bytes to compress
+     * @param dest Array to write compressed bytes to. Must have room for
+     * maxCompressedLength(srcLen) bytes from destOff.
+     * @param destOff Offset to start writing at
+     * @return int The number of compressed bytes written
+     */
+    public static int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff) {
+        int srcEnd = srcOff + srcLen;
+        int d = destOff;
+        int anchor = srcOff;
+
+        if (srcLen >= MIN_LENGTH) {
+            int[] table = new int[1 << HASH_BITS];
+            int matchLimit = srcEnd - LAST_LITERALS;
+            int s = srcOff;
+
+            //table entries are stored + 1, so 0 means empty
+            while (s < srcEnd - MIN_LENGTH) {
+                int h = hash(readInt(src, s));
+                int ref = table[h] - 1;
+                table[h] = s + 1;
+
+                if (ref < srcOff || s - ref > MAX_OFFSET || readInt(src, ref) != readInt(src, s)) {
+                    s++;
+                    continue;
+                }
+
+                //extend the match
+                int matchLen = MIN_MATCH;
+                while (s + matchLen < matchLimit && src[ref + matchLen] == src[s + matchLen]) {
+                    matchLen++;
+                }
+
+                d = writeSequence(src, anchor, s - anchor, s - ref, matchLen, dest, d);
+
+                s += matchLen;
+                anchor = s;
+            }
+        }
+
+        //trailing literals
+        return writeLiterals(src, anchor, srcEnd - anchor, dest, d) - destOff;
+    }
+
+    /**
+     * Decompresses a block of bytes written by compress.
+     *
+     * @param src Array holding the compressed bytes
+     * @param srcOff Offset of the first compressed byte
+     * @param srcLen Number of compressed bytes
+     * @param dest Array to write the decompressed bytes to
+     * @param destOff Offset to start writing at
+     * @param destLen The exact number of bytes the block decompresses to
+     * @throws IOException If the compressed data is corrupt
+     */
+    public static void decompress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff, int destLen)
+            throws IOException {
+
+        int s = srcOff;
+        int srcEnd = srcOff + srcLen;
+        int d = destOff;
+        int destEnd = destOff + destLen;
+
+        try {
+            while (s < srcEnd) {
+                int token = src[s++] & 0xFF;
+
+                //literals
+                int literalLen = token >>> 4;
+                if (literalLen == 15) {
+                    int b;
+                    do {
+                        b = src[s++] & 0xFF;
+                        literalLen += b;
+                    } while (b == 255);
+                }
+                if (s + literalLen > srcEnd || d + literalLen > destEnd) {
+                    throw new IOException("Corrupt block: literals overrun");
+                }
+                System.arraycopy(src, s, dest, d, literalLen);
+                s += literalLen;
+                d += literalLen;
+
+                //the last sequence has no match
+                if (s == srcEnd) {
+                    break;
+                }
+
+                //match
+                int offset = (src[s++] & 0xFF) | ((src[s++] & 0xFF) << 8);
+                int matchLen = token & 0x0F;
+                if (matchLen == 15) {
+                    int b;
+                    do {
+                        b = src[s++] & 0xFF;
+                        matchLen += b;
+                    } while (b == 255);
+                }
+                matchLen += MIN_MATCH;
+
+                int ref = d - offset;
+                if (offset == 0 || ref < destOff || d + matchLen > destEnd) {
+                    throw new IOException("Corrupt block: bad match");
+                }
+
+                if (offset >= matchLen) {
+                    System.arraycopy(dest, ref, dest, d, matchLen);
+                    d += matchLen;
+                } else {
+                    //overlapping copy repeats the last offset bytes
+                    for (int i = 0; i < matchLen; i++) {
+                        dest[d++] = dest[ref++];
+                    }
+                }
+            }
+
+        } catch (ArrayIndexOutOfBoundsException aioobe) {
+            throw new IOException("Corrupt block: truncated", aioobe);
+        }
+
+        if (d != destEnd) {
+            throw new IOException("Corrupt block: expected " + destLen + " bytes but got " + (d - destOff));
+        }
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literalLen, int offset, int matchLen,
+            byte[] dest, int d) {
+
+        int tokenPos = d++;
+        int ml = matchLen - MIN_MATCH;
+
+        int token = (Math.min(literalLen, 15) << 4) | Math.min(ml, 15);
+        dest[tokenPos] = (byte) token;
+
+        if (literalLen >= 15) {
+            d = writeLength(literalLen - 15, dest, d);
+        }
+        System.arraycopy(src, literalStart, dest, d, literalLen);
+        d += literalLen;
+
+        dest[d++] = (byte) offset;
+        dest[d++] = (byte) (offset >>> 8);
+
+        if (ml >= 15) {
+            d = writeLength(ml - 15, dest, d);
+        }
+
+        return d;
+    }
+
+    private static int writeLiterals(byte[] src, int literalStart, int literalLen, byte[] dest, int d) {
+        dest[d++] = (byte) (Math.min(literalLen, 15) << 4);
+
+        if (literalLen >= 15) {
+            d = writeLength(literalLen - 15, dest, d);
+        }
+        System.arraycopy(src, literalStart, dest, d, literalLen);
+
+        return d + literalLen;
+    }
+
+    private static int writeLength(int length, byte[] dest, int d) {
+        while (length >= 255) {
+            dest[d++] = (byte) 255;
+            length -= 255;
+        }
+        dest[d++] = (byte) length;
+
+        return d;
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return (b[i] & 0xFF) | ((b[i + 1] & 0xFF) << 8) | ((b[i + 2] & 0xFF) << 16) | ((b[i + 3] & 0xFF) << 24);
+    }
+
+    private static int hash(int value) {
+        return (value * -1640531535) >>> HASH_SHIFT;
+    }
+
+}
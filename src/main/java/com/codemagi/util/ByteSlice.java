@@ -0,0 +1,128 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A CharSequence view of a range of bytes in a ByteBuffer. The bytes are not
+ * copied: length() and charAt() read the buffer directly when the range is
+ * ASCII (or the charset is ISO-8859-1), and the range is only decoded into a
+ * String when toString() is called or the range contains other characters.
+ * <P>
+ * A ByteSlice is only valid as long as the underlying buffer is. Slices
+ * handed out by parsers are only valid for the duration of the callback.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class ByteSlice implements CharSequence {
+
+    private final ByteBuffer buf;
+    private final int start;
+    private final int end;
+    private final Charset charset;
+
+    //decoded value, for ranges that are not one byte per char
+    private String decoded = null;
+    private int direct = -1;
+
+    /**
+     * Constructor.
+     *
+     * @param buf The buffer containing the bytes
+     * @param start Index of the first byte of the slice
+     * @param end Index of the end of the slice (exclusive)
+     * @param charset The Charset the bytes are encoded in
+     */
+    public ByteSlice(ByteBuffer buf, int start, int end, Charset charset) {
+        this.buf = buf;
+        this.start = start;
+        this.end = Math.max(start, end);
+        this.charset = charset;
+    }
+
+    /**
+     * Returns true if each byte of the slice is one char.
+     */
+    private boolean isDirect() {
+        if (direct < 0) {
+            direct = 1;
+            if (!StandardCharsets.ISO_8859_1.equals(charset)) {
+                for (int i = start; i < end; i++) {
+                    if (buf.get(i) < 0) {
+                        direct = 0;
+                        break;
+                    }
+                }
+            }
+        }
+        return direct == 1;
+    }
+
+    @Override
+    public int length() {
+        return isDirect() ? end - start : toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (!isDirect()) {
+            return toString().charAt(index);
+        }
+        if (index < 0 || index >= end - start) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + (end - start));
+        }
+
+        return (char) (buf.get(start + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (!isDirect()) {
+            return toString().subSequence(from, to);
+        }
+        if (from < 0 || to > end - start || from > to) {
+            throw new IndexOutOfBoundsException("from " + from + ", to " + to + ", length " + (end - start));
+        }
+
+        return new ByteSlice(buf, start + from, start + to, charset);
+    }
+
+    /**
+     * Returns true if this slice contains no characters.
+     */
+    @Override
+    public boolean isEmpty() {
+        return start == end;
+    }
+
+    /**
+     * Decodes the slice into a String.
+     */
+    @Override
+    public String toString() {
+        if (decoded == null) {
+            byte[] bytes = new byte[end - start];
+            buf.get(start, bytes);
+            decoded = new String(bytes, charset);
+        }
+        return decoded;
+    }
+
+}
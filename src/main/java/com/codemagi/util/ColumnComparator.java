@@ -0,0 +1,114 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compares rows (Lists of values) by one or more key columns. Values of the
+ * same Comparable type (String, Integer, Date, etc.) are compared naturally.
+ * Values of different types are ordered by class name, so that, for example,
+ * every Integer sorts before every String. Nulls and missing columns sort
+ * first.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class ColumnComparator implements Comparator, java.io.Serializable {
+
+    private final int[] columns;
+    private final boolean[] descending;
+
+    /**
+     * Constructs a comparator that sorts ascending on the key columns.
+     *
+     * @param columns zero-based key column numbers, most significant first
+     */
+    public ColumnComparator(int[] columns) {
+        this(columns, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param columns zero-based key column numbers, most significant first
+     * @param descending true for each key column that should sort descending.
+     * May be null for all ascending.
+     */
+    public ColumnComparator(int[] columns, boolean[] descending) {
+        this.columns = columns.clone();
+        this.descending = new boolean[columns.length];
+
+        if (descending != null) {
+            System.arraycopy(descending, 0, this.descending, 0, Math.min(descending.length, columns.length));
+        }
+    }
+
+    @Override
+    public int compare(Object o1, Object o2) {
+        List row1 = (List) o1;
+        List row2 = (List) o2;
+
+        for (int i = 0; i < columns.length; i++) {
+            int output = compareValues(getValue(row1, columns[i]), getValue(row2, columns[i]));
+
+            if (output != 0) {
+                return descending[i] ? -output : output;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Compares two values: naturally if they are Comparables of the same
+     * class, by class name if their classes differ, and otherwise by their
+     * String representations. Nulls sort first. This is a total order, and
+     * values of different classes never compare equal, so it can be used
+     * for sorted maps over columns that mix types.
+     */
+    public static int compareValues(Object value1, Object value2) {
+        if (value1 == value2) {
+            return 0;
+        }
+        if (value1 == null) {
+            return -1;
+        }
+        if (value2 == null) {
+            return 1;
+        }
+
+        Class class1 = value1.getClass();
+        Class class2 = value2.getClass();
+        if (class1 != class2) {
+            int output = class1.getName().compareTo(class2.getName());
+
+            //distinct classes with the same name, from different class loaders
+            return (output != 0) ? output : Integer.compare(System.identityHashCode(class1), System.identityHashCode(class2));
+        }
+        if (value1 instanceof Comparable) {
+            return ((Comparable) value1).compareTo(value2);
+        }
+
+        return value1.toString().compareTo(value2.toString());
+    }
+
+    private static Object getValue(List row, int column) {
+        return (row == null || column >= row.size()) ? null : row.get(column);
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An index on one column of an ObjectFlatFile or GridList, mapping column
+ * values to the numbers of the rows that contain them. Indexes are created
+ * through the owning data structure (for example
+ * ObjectFlatFile.createHashIndex) and are kept up to date as rows are added
+ * and items are set. Row numbers are returned in ascending order.
+ * <P>
+ * A missing column in a short row is indexed as null. Changes made directly
+ * to a row List after it was added are not seen by the index.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public abstract class ColumnIndex {
+
+    private static final int[] NO_ROWS = new int[0];
+
+    private final int column;
+
+    ColumnIndex(int column) {
+        if (column < 0) {
+            throw new IllegalArgumentException("Invalid column: " + column);
+        }
+        this.column = column;
+    }
+
+    /**
+     * Returns the zero-based number of the indexed column.
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Returns the numbers of the rows whose column equals a value.
+     *
+     * @param value The value to look up. May be null.
+     * @return int[] Row numbers in ascending order. Empty if none match.
+     */
+    public int[] find(Object value) {
+        return toArray(get(value));
+    }
+
+    /**
+     * Returns the first row whose column equals a value, or -1 if none do.
+     */
+    public int findFirst(Object value) {
+        Object rows = get(value);
+
+        if (rows == null) {
+            return -1;
+        }
+        return (rows instanceof Integer) ? (Integer) rows : ((SortedIntSet) rows).get(0);
+    }
+
+    /**
+     * Returns true if any row's column equals a value.
+     */
+    public boolean contains(Object value) {
+        return get(value) != null;
+    }
+
+    /**
+     * Returns the number of distinct values in the column.
+     */
+    public abstract int getNumKeys();
+
+    /**
+     * Returns the row set (see addRow) for a value, or null.
+     */
+    abstract Object get(Object value);
+
+    /**
+     * Adds a row to the index.
+     */
+    abstract void add(int row, Object value);
+
+    /**
+     * Removes a row from the index.
+     */
+    abstract void remove(int row, Object value);
+
+    /**
+     * Removes every row from the index.
+     */
+    abstract void clear();
+
+    /**
+     * Clears and rebuilds the index from a List of rows.
+     */
+    void build(List rows) {
+        clear();
+
+        int i = 0;
+        for (Object row : rows) {
+            add(i++, valueOf((List) row));
+        }
+    }
+
+    /**
+     * Returns the indexed value of a row: the item in the indexed column, or
+     * null if the row is null or too short.
+     */
+    Object valueOf(List row) {
+        return (row == null || column >= row.size()) ? null : row.get(column);
+    }
+
+    //ROW SETS
+    //Most keys in a reference table map to a single row, so a row set is
+    //held as an Integer until a second row is added, then as a SortedIntSet.
+    /**
+     * Adds a row number to a row set, keeping it in ascending order.
+     *
+     * @param rows The row set, or null for an empty set
+     * @return Object The new row set
+     */
+    static Object addRow(Object rows, int row) {
+        if (rows == null) {
+            return row;
+        }
+
+        SortedIntSet set;
+        if (rows instanceof Integer) {
+            set = new SortedIntSet();
+            set.add((Integer) rows);
+        } else {
+            set = (SortedIntSet) rows;
+        }
+        set.add(row);
+
+        return set;
+    }
+
+    /**
+     * Removes a row number from a row set.
+     *
+     * @return Object The new row set, or null if it is now empty
+     */
+    static Object removeRow(Object rows, int row) {
+        if (rows == null) {
+            return null;
+        }
+        if (rows instanceof Integer) {
+            return ((Integer) rows == row) ? null : rows;
+        }
+
+        SortedIntSet set = (SortedIntSet) rows;
+        set.remove(row);
+
+        if (set.size() == 1) {
+            return set.get(0);
+        }
+        return (set.size() == 0) ? null : set;
+    }
+
+    static int[] toArray(Object rows) {
+        if (rows == null) {
+            return NO_ROWS;
+        }
+        if (rows instanceof Integer) {
+            return new int[]{(Integer) rows};
+        }
+
+        return ((SortedIntSet) rows).toArray();
+    }
+
+    /**
+     * Appends the rows of a row set to an array being built.
+     */
+    static int[] append(int[] output, int count, Object rows) {
+        int n = size(rows);
+
+        if (count + n > output.length) {
+            output = Arrays.copyOf(output, Math.max(output.length * 2, count + n));
+        }
+
+        if (rows instanceof Integer) {
+            output[count] = (Integer) rows;
+        } else {
+            ((SortedIntSet) rows).copyTo(output, count);
+        }
+
+        return output;
+    }
+
+    static int size(Object rows) {
+        if (rows == null) {
+            return 0;
+        }
+        return (rows instanceof Integer) ? 1 : ((SortedIntSet) rows).size();
+    }
+
+}
@@ -0,0 +1,380 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.text.DateFormat;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Describes the type of each column in a dataset, and converts the String
+ * fields produced by DataLoader into typed values (Integer, Long, Double, Date
+ * and Boolean) so they only have to be parsed once, at load time.
+ * <P>
+ * A schema can be specified explicitly or inferred from a sample of rows. Date
+ * columns carry a SimpleDateFormat pattern. Since DateFormat is not
+ * thread-safe, neither is ColumnSchema: use copy() to get a schema for each
+ * thread.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class ColumnSchema {
+
+    /**
+     * Date patterns tried, in order, when inferring the type of a column.
+     */
+    public static final String[] DATE_PATTERNS = {
+        "yyyy-MM-dd",
+        "yyyy-MM-dd HH:mm:ss",
+        "yyyy-MM-dd HH:mm:ss.S",
+        "yyyy-MM-dd'T'HH:mm:ss",
+        "MM/dd/yyyy",
+        "MM/dd/yyyy hh:mma",
+        "dd/MM/yyyy"
+    };
+
+    private final ColumnType[] types;
+    private final String[] datePatterns;
+    private final DateFormat[] dateFormats;
+
+    /**
+     * Constructs a schema with the specified column types. DATE columns use
+     * the pattern ColumnarFlatFile.DEFAULT_DATE_FORMAT until another is set.
+     *
+     * @param types The type of each column
+     */
+    public ColumnSchema(ColumnType[] types) {
+        this(types, null);
+    }
+
+    /**
+     * Constructs a schema with the specified column types and date patterns.
+     *
+     * @param types The type of each column
+     * @param datePatterns SimpleDateFormat pattern for each DATE column. May be
+     * null, and entries for non-DATE columns are ignored.
+     */
+    public ColumnSchema(ColumnType[] types, String[] datePatterns) {
+        this.types = types.clone();
+        this.datePatterns = new String[types.length];
+        this.dateFormats = new DateFormat[types.length];
+
+        for (int i = 0; i < types.length; i++) {
+            String pattern = (datePatterns != null && i < datePatterns.length) ? datePatterns[i] : null;
+            setDatePattern(i, pattern);
+        }
+    }
+
+    /**
+     * Returns a copy of this schema, with its own date formats, for use on
+     * another thread.
+     */
+    public ColumnSchema copy() {
+        return new ColumnSchema(types, datePatterns);
+    }
+
+    /**
+     * Sets the SimpleDateFormat pattern of a DATE column. A null pattern
+     * selects ColumnarFlatFile.DEFAULT_DATE_FORMAT.
+     *
+     * @param column zero-based column number
+     * @param pattern SimpleDateFormat pattern
+     */
+    public void setDatePattern(int column, String pattern) {
+        if (types[column] != ColumnType.DATE) {
+            return;
+        }
+
+        datePatterns[column] = (pattern == null) ? ColumnarFlatFile.DEFAULT_DATE_FORMAT : pattern;
+        dateFormats[column] = strictFormat(datePatterns[column]);
+    }
+
+    /**
+     * Returns the date pattern of a DATE column, or null for other columns.
+     */
+    public String getDatePattern(int column) {
+        return datePatterns[column];
+    }
+
+    /**
+     * Returns the type of a column. Columns beyond the end of the schema are
+     * STRING.
+     */
+    public ColumnType getColumnType(int column) {
+        return (column >= 0 && column < types.length) ? types[column] : ColumnType.STRING;
+    }
+
+    /**
+     * Returns the number of columns in the schema.
+     */
+    public int getNumCols() {
+        return types.length;
+    }
+
+    /**
+     * Returns the types of all columns.
+     */
+    public ColumnType[] getColumnTypes() {
+        return types.clone();
+    }
+
+    /**
+     * Converts every field of a row to the type of its column, replacing the
+     * values in the List.
+     *
+     * @param row List of field values, usually Strings
+     * @return int The number of fields that could not be converted. These
+     * fields keep their original value.
+     */
+    public int convertRow(List row) {
+        int errors = 0;
+
+        int size = Math.min(row.size(), types.length);
+        for (int i = 0; i < size; i++) {
+            Object value = row.get(i);
+            Object converted = convert(i, value);
+
+            if (converted == null && value != null && value.toString().trim().length() > 0) {
+                errors++;
+                continue;
+            }
+            row.set(i, converted);
+        }
+
+        return errors;
+    }
+
+    /**
+     * Converts a value to the type of a column.
+     *
+     * @param column zero-based column number
+     * @param value The value to convert, usually a String
+     * @return Object The converted value, the value itself for STRING columns,
+     * or null if the value is empty or cannot be converted
+     */
+    public Object convert(int column, Object value) {
+        ColumnType type = getColumnType(column);
+
+        if (value == null || type == ColumnType.STRING) {
+            return value;
+        }
+
+        String s = value.toString().trim();
+        if (s.length() == 0) {
+            return null;
+        }
+
+        try {
+            switch (type) {
+                case INTEGER:
+                    return (value instanceof Integer) ? value : Integer.valueOf(s);
+                case LONG:
+                    return (value instanceof Long) ? value : Long.valueOf(s);
+                case DOUBLE:
+                    return (value instanceof Double) ? value : Double.valueOf(s);
+                case DATE:
+                    return (value instanceof Date) ? value : parseDate(dateFormats[column], s);
+                case BOOLEAN:
+                    return (value instanceof Boolean) ? value : parseBoolean(s);
+                default:
+                    return value;
+            }
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+    }
+
+    /**
+     * Infers a schema from a sample of rows. Each column is given the
+     * narrowest type that every non-empty value in the sample can be converted
+     * to, trying INTEGER, LONG, DOUBLE, BOOLEAN, then DATE (with each of
+     * DATE_PATTERNS), and falling back to STRING. Columns with no non-empty
+     * values are STRING.
+     *
+     * @param rows List of rows (Lists of Strings)
+     * @return ColumnSchema The inferred schema
+     */
+    public static ColumnSchema infer(List rows) {
+        int numCols = 0;
+        for (Object row : rows) {
+            numCols = Math.max(numCols, ((List) row).size());
+        }
+
+        DateFormat[] candidates = new DateFormat[DATE_PATTERNS.length];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = strictFormat(DATE_PATTERNS[i]);
+        }
+
+        ColumnType[] types = new ColumnType[numCols];
+        String[] patterns = new String[numCols];
+
+        for (int col = 0; col < numCols; col++) {
+            boolean any = false;
+            boolean canInt = true;
+            boolean canLong = true;
+            boolean canDouble = true;
+            boolean canBoolean = true;
+            boolean[] canDate = new boolean[candidates.length];
+            Arrays.fill(canDate, true);
+
+            for (Object r : rows) {
+                List row = (List) r;
+                if (col >= row.size() || row.get(col) == null) {
+                    continue;
+                }
+
+                String s = row.get(col).toString().trim();
+                if (s.length() == 0) {
+                    continue;
+                }
+                any = true;
+
+                boolean numeric = isNumeric(s);
+                canInt = canInt && numeric && parses(ColumnType.INTEGER, s);
+                canLong = canLong && numeric && parses(ColumnType.LONG, s);
+                canDouble = canDouble && numeric && parses(ColumnType.DOUBLE, s);
+                canBoolean = canBoolean && !numeric && parseBoolean(s) != null;
+                for (int i = 0; i < candidates.length; i++) {
+                    canDate[i] = canDate[i] && parseDate(candidates[i], s) != null;
+                }
+            }
+
+            types[col] = ColumnType.STRING;
+            if (!any) {
+                continue;
+            }
+
+            if (canInt) {
+                types[col] = ColumnType.INTEGER;
+            } else if (canLong) {
+                types[col] = ColumnType.LONG;
+            } else if (canDouble) {
+                types[col] = ColumnType.DOUBLE;
+            } else if (canBoolean) {
+                types[col] = ColumnType.BOOLEAN;
+            } else {
+                for (int i = 0; i < candidates.length; i++) {
+                    if (canDate[i]) {
+                        types[col] = ColumnType.DATE;
+                        patterns[col] = DATE_PATTERNS[i];
+                        break;
+                    }
+                }
+            }
+        }
+
+        return new ColumnSchema(types, patterns);
+    }
+
+    /**
+     * Infers a schema from the rows of an ObjectFlatFile.
+     *
+     * @param sample ObjectFlatFile containing sample rows
+     * @return ColumnSchema The inferred schema
+     */
+    public static ColumnSchema infer(ObjectFlatFile sample) {
+        List rows = new ArrayList(sample.getNumRows());
+        for (int row = 0; row < sample.getNumRows(); row++) {
+            List values = new ArrayList();
+            for (int col = 0; col < sample.getNumCols(row); col++) {
+                values.add(sample.getItem(row, col));
+            }
+            rows.add(values);
+        }
+
+        return infer(rows);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                output.append(", ");
+            }
+            output.append(types[i]);
+            if (datePatterns[i] != null) {
+                output.append("(").append(datePatterns[i]).append(")");
+            }
+        }
+        return output.toString();
+    }
+
+    private static DateFormat strictFormat(String pattern) {
+        DateFormat format = new SimpleDateFormat(pattern);
+        format.setLenient(false);
+        return format;
+    }
+
+    /**
+     * Parses a date, requiring the whole String to match the format.
+     */
+    private static Date parseDate(DateFormat format, String s) {
+        ParsePosition position = new ParsePosition(0);
+        Date output = format.parse(s, position);
+
+        return (position.getIndex() == s.length()) ? output : null;
+    }
+
+    /**
+     * Parses true/false, yes/no, y/n and 1/0 (case insensitive) into a
+     * Boolean, or returns null.
+     */
+    private static Boolean parseBoolean(String s) {
+        if ("true".equalsIgnoreCase(s) || "yes".equalsIgnoreCase(s) || "y".equalsIgnoreCase(s) || "1".equals(s)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equalsIgnoreCase(s) || "no".equalsIgnoreCase(s) || "n".equalsIgnoreCase(s) || "0".equals(s)) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the String only contains characters that can appear in a
+     * decimal number.
+     */
+    private static boolean isNumeric(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!(c >= '0' && c <= '9') && c != '-' && c != '+' && c != '.' && c != 'e' && c != 'E') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean parses(ColumnType type, String s) {
+        try {
+            switch (type) {
+                case INTEGER:
+                    Integer.parseInt(s);
+                    break;
+                case LONG:
+                    Long.parseLong(s);
+                    break;
+                default:
+                    Double.parseDouble(s);
+            }
+            return true;
+        } catch (NumberFormatException nfe) {
+            return false;
+        }
+    }
+
+}
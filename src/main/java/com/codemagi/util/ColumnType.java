@@ -0,0 +1,51 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+/**
+ * The data types that a typed column of a data structure can hold.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public enum ColumnType {
+
+    /**
+     * Text, stored as java.lang.String
+     */
+    STRING,
+    /**
+     * 32-bit integers, stored as int or java.lang.Integer
+     */
+    INTEGER,
+    /**
+     * 64-bit integers, stored as long or java.lang.Long
+     */
+    LONG,
+    /**
+     * Floating point numbers, stored as double or java.lang.Double
+     */
+    DOUBLE,
+    /**
+     * Dates, stored as milliseconds since the epoch or java.util.Date
+     */
+    DATE,
+    /**
+     * True/false values, stored as boolean or java.lang.Boolean
+     */
+    BOOLEAN;
+
+}
@@ -0,0 +1,954 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * ColumnarFlatFile is a two-dimensional data structure with a fixed set of
+ * typed columns, stored column by column in primitive arrays rather than as a
+ * List of Lists of Objects.
+ * <P>
+ * INTEGER, LONG, DOUBLE and DATE columns are stored in int[], long[], double[]
+ * and long[] (milliseconds) arrays, and BOOLEAN columns in a bitmap. STRING
+ * columns are dictionary-encoded: each distinct value is stored once and rows
+ * hold an int code, until the column has more than MAX_DICTIONARY_SIZE
+ * distinct values, at which point it falls back to a plain String[]. Every
+ * column has a bitmap of null cells.
+ * <P>
+ * Values added as Strings (for example rows from DataLoader) are converted to
+ * the type of their column when they are added. Values that cannot be
+ * converted are stored as null. Since ColumnarFlatFile is a RowHandler, it can
+ * be loaded directly from the DataLoader.streamX methods.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class ColumnarFlatFile implements RowHandler, java.io.Serializable {
+
+    /**
+     * The maximum number of distinct values a STRING column will
+     * dictionary-encode.
+     */
+    public static final int MAX_DICTIONARY_SIZE = 65536;
+
+    /**
+     * The date format used to parse and format DATE columns, unless another
+     * is set for the column.
+     */
+    public static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd";
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    //largest buffer toString allocates up front; it grows beyond this as needed
+    private static final int MAX_PRESIZE = 1 << 24;
+
+    //members
+    private final ColumnType[] types;
+    private final Column[] columns;
+    private int numRows = 0;
+    private int capacity;
+
+    //options
+    private boolean returnNulls = false;
+
+    /**
+     * Constructs an empty ColumnarFlatFile with the specified column types.
+     *
+     * @param types The type of each column
+     */
+    public ColumnarFlatFile(ColumnType[] types) {
+        this(types, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty ColumnarFlatFile with the specified column types and
+     * initial number of rows.
+     *
+     * @param types The type of each column
+     * @param initialNumRows The number of rows to allocate space for
+     */
+    public ColumnarFlatFile(ColumnType[] types, int initialNumRows) {
+        this.types = types.clone();
+        this.capacity = Math.max(1, initialNumRows);
+
+        columns = new Column[types.length];
+        for (int i = 0; i < types.length; i++) {
+            columns[i] = newColumn(types[i], capacity);
+        }
+    }
+
+    /**
+     * Constructs an empty ColumnarFlatFile with the column types and date
+     * patterns of a ColumnSchema.
+     *
+     * @param schema The schema of the data
+     */
+    public ColumnarFlatFile(ColumnSchema schema) {
+        this(schema.getColumnTypes(), DEFAULT_CAPACITY);
+
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == ColumnType.DATE) {
+                setDateFormat(i, schema.getDatePattern(i));
+            }
+        }
+    }
+
+    /**
+     * Creates a ColumnarFlatFile containing the data from an ObjectFlatFile,
+     * converted to the specified column types.
+     *
+     * @param source The ObjectFlatFile to copy
+     * @param types The type of each column
+     * @return ColumnarFlatFile A new ColumnarFlatFile with the same data
+     */
+    public static ColumnarFlatFile fromFlatFile(ObjectFlatFile source, ColumnType[] types) {
+        int sourceRows = source.getNumRows();
+
+        ColumnarFlatFile output = new ColumnarFlatFile(types, sourceRows);
+        for (int row = 0; row < sourceRows; row++) {
+            for (int col = 0; col < types.length; col++) {
+                output.columns[col].set(row, col < source.getNumCols(row) ? source.getItem(row, col) : null);
+            }
+            output.numRows++;
+        }
+
+        return output;
+    }
+
+    private static Column newColumn(ColumnType type, int capacity) {
+        switch (type) {
+            case INTEGER:
+                return new IntColumn(capacity);
+            case LONG:
+                return new LongColumn(capacity);
+            case DOUBLE:
+                return new DoubleColumn(capacity);
+            case DATE:
+                return new DateColumn(capacity);
+            case BOOLEAN:
+                return new BooleanColumn(capacity);
+            default:
+                return new StringColumn(capacity);
+        }
+    }
+
+    //GETTERS AND SETTERS
+    /**
+     * If true, getItem will return nulls, else "" will be returned instead.
+     */
+    public void setReturnNulls(boolean newValue) {
+        returnNulls = newValue;
+    }
+
+    /**
+     * Sets the date format used to parse Strings into a DATE column and to
+     * format its values as Strings.
+     *
+     * @param column zero-based column number
+     * @param pattern SimpleDateFormat pattern
+     */
+    public void setDateFormat(int column, String pattern) {
+        if (columns[column] instanceof DateColumn) {
+            ((DateColumn) columns[column]).format = new SimpleDateFormat(pattern);
+        }
+    }
+
+    /**
+     * Returns the type of a column.
+     *
+     * @param column zero-based column number
+     */
+    public ColumnType getColumnType(int column) {
+        return types[column];
+    }
+
+    /**
+     * Returns the number of data rows in the ColumnarFlatFile
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * Returns the number of columns in the ColumnarFlatFile
+     */
+    public int getNumCols() {
+        return columns.length;
+    }
+
+    /**
+     * Returns the number of columns for one row. Since columns are fixed this
+     * is the same for every row.
+     *
+     * @param rowNum The zero-based row number
+     * @return The number of columns, or -1 if the row does not exist
+     */
+    public int getNumCols(int rowNum) {
+        if (rowNum < 0 || rowNum >= numRows) {
+            return -1;
+        }
+
+        return columns.length;
+    }
+
+    /**
+     * Adds a new row to the end of the ColumnarFlatFile. Values are converted
+     * to the type of their column. Missing values are null, and values beyond
+     * the last column are ignored.
+     *
+     * @param newRow New row to add. Should be a List of Objects.
+     */
+    public void addRow(List newRow) {
+        ensureCapacity(numRows + 1);
+
+        int size = (newRow == null) ? 0 : newRow.size();
+        for (int col = 0; col < columns.length; col++) {
+            columns[col].set(numRows, col < size ? newRow.get(col) : null);
+        }
+
+        numRows++;
+    }
+
+    /**
+     * Adds a new row to the end of the ColumnarFlatFile.
+     *
+     * @param values Array of values to add
+     */
+    public void addRow(Object[] values) {
+        addRow(Arrays.asList(values));
+    }
+
+    /**
+     * Adds each row received from a loader to this ColumnarFlatFile.
+     */
+    @Override
+    public void handleRow(List row) {
+        addRow(row);
+    }
+
+    /**
+     * Sets (replaces) the value of an item at a specified position. The value
+     * is converted to the type of the column. If the row is not found, enough
+     * null rows are added to create it.
+     *
+     * @param row zero-based row number to set at
+     * @param column zero-based column number to set at
+     * @param value value to set
+     */
+    public void setItem(int row, int column, Object value) {
+        if (row >= numRows) {
+            ensureCapacity(row + 1);
+            for (int i = numRows; i <= row; i++) {
+                for (Column c : columns) {
+                    c.set(i, null);
+                }
+            }
+            numRows = row + 1;
+        }
+
+        columns[column].set(row, value);
+    }
+
+    /**
+     * Returns true if the item at a specified position is null, or does not
+     * exist.
+     */
+    public boolean isNull(int row, int column) {
+        if (!exists(row, column)) {
+            return true;
+        }
+
+        return columns[column].isNull(row);
+    }
+
+    /**
+     * Gets an Object from a specified position. Numbers, dates and booleans
+     * are returned boxed.
+     *
+     * @param row zero-based integer for the row number
+     * @param column zero-based integer for the column number
+     * @return Object Object at the specified position, or "" if nothing is
+     * found and returnNulls is false
+     */
+    public Object getItem(int row, int column) {
+        Object output = null;
+
+        if (exists(row, column)) {
+            output = columns[column].get(row);
+        }
+
+        if (output == null && !returnNulls) {
+            output = "";
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns the String value of an item. Values of non-STRING columns are
+     * formatted as Strings. Nulls are returned as "".
+     */
+    public String getString(int row, int column) {
+        if (isNull(row, column)) {
+            return "";
+        }
+
+        return columns[column].getString(row);
+    }
+
+    /**
+     * Returns the value of an item in an INTEGER column, or null.
+     */
+    public Integer getInteger(int row, int column) {
+        if (isNull(row, column) || types[column] != ColumnType.INTEGER) {
+            return null;
+        }
+
+        return ((IntColumn) columns[column]).values[row];
+    }
+
+    /**
+     * Returns the value of an item in a DOUBLE column, or null.
+     */
+    public Double getDouble(int row, int column) {
+        if (isNull(row, column) || types[column] != ColumnType.DOUBLE) {
+            return null;
+        }
+
+        return ((DoubleColumn) columns[column]).values[row];
+    }
+
+    /**
+     * Returns the value of an item in a DATE column, or null.
+     */
+    public Date getDate(int row, int column) {
+        if (isNull(row, column) || types[column] != ColumnType.DATE) {
+            return null;
+        }
+
+        return new Date(((DateColumn) columns[column]).values[row]);
+    }
+
+    /**
+     * Returns the value of an item in a BOOLEAN column, or null.
+     */
+    public Boolean getBoolean(int row, int column) {
+        if (isNull(row, column) || types[column] != ColumnType.BOOLEAN) {
+            return null;
+        }
+
+        return ((BooleanColumn) columns[column]).getBit(row);
+    }
+
+    /**
+     * Returns the value of an item as an int, without boxing. Values are
+     * converted as in longValue, then narrowed to an int.
+     */
+    public int intValue(int row, int column) {
+        return (int) longValue(row, column);
+    }
+
+    /**
+     * Returns the value of an item as a long, without boxing. DATE columns
+     * return epoch milliseconds, BOOLEAN columns return 1 or 0, and STRING
+     * columns parse their text, truncating any fraction. Returns 0 for nulls
+     * and for text that is not a number.
+     */
+    public long longValue(int row, int column) {
+        if (isNull(row, column)) {
+            return 0;
+        }
+
+        return columns[column].longValue(row);
+    }
+
+    /**
+     * Returns the value of an item as a double, without boxing. DATE columns
+     * return epoch milliseconds, BOOLEAN columns return 1 or 0, and STRING
+     * columns parse their text. Returns 0 for nulls and for text that is not
+     * a number.
+     */
+    public double doubleValue(int row, int column) {
+        if (isNull(row, column)) {
+            return 0;
+        }
+
+        return columns[column].doubleValue(row);
+    }
+
+    /**
+     * Returns the value of an item in a BOOLEAN column as a boolean, without
+     * boxing. Returns false for nulls and non-BOOLEAN columns.
+     */
+    public boolean booleanValue(int row, int column) {
+        if (isNull(row, column) || types[column] != ColumnType.BOOLEAN) {
+            return false;
+        }
+
+        return ((BooleanColumn) columns[column]).getBit(row);
+    }
+
+    /**
+     * Returns a row as a String using the specified delimiter
+     *
+     * @param rowNumber The row number to return
+     * @param delimiter String to use as delimiter in output
+     * @return String This row, with fields separated by the delimiter
+     */
+    public String getRowString(int rowNumber, String delimiter) {
+        if (rowNumber < 0 || rowNumber >= numRows) {
+            return "";
+        }
+
+        StringBuilder output = new StringBuilder(columns.length * 16);
+        for (int col = 0; col < columns.length; col++) {
+            if (col > 0) {
+                output.append(delimiter);
+            }
+            output.append(getString(rowNumber, col));
+        }
+
+        return output.toString();
+    }
+
+    /**
+     * Outputs this ColumnarFlatFile to a delimited String. Rows will be
+     * separated by a System specific line separator.
+     *
+     * @param delimiter The delimiter to separate values
+     * @return String The delimited data
+     */
+    public String toString(String delimiter) {
+        String lineSep = System.getProperty("line.separator");
+
+        //estimate in long, since rows * columns * 16 overflows an int for large files
+        long approxOutputSize = (long) numRows * columns.length * 16;
+        StringBuilder output = new StringBuilder((int) Math.min(approxOutputSize, MAX_PRESIZE));
+        for (int row = 0; row < numRows; row++) {
+            output.append(getRowString(row, delimiter));
+            output.append(lineSep);
+        }
+
+        return output.toString();
+    }
+
+    /**
+     * Returns the data in this ColumnarFlatFile as an ObjectFlatFile of boxed
+     * values.
+     */
+    public ObjectFlatFile toFlatFile() {
+        ObjectFlatFile output = new ObjectFlatFile(numRows);
+
+        for (int row = 0; row < numRows; row++) {
+            List newRow = new ArrayList(columns.length);
+            for (Column c : columns) {
+                newRow.add(c.get(row));
+            }
+            output.addRow(newRow);
+        }
+
+        return output;
+    }
+
+    /**
+     * Releases any unused capacity at the end of the column arrays, eg: after
+     * loading is complete.
+     */
+    public void trimToSize() {
+        int newCapacity = Math.max(1, numRows);
+        if (newCapacity != capacity) {
+            for (Column c : columns) {
+                c.resize(newCapacity);
+            }
+            capacity = newCapacity;
+        }
+    }
+
+    private boolean exists(int row, int column) {
+        return row >= 0 && row < numRows && column >= 0 && column < columns.length;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity <= capacity) {
+            return;
+        }
+
+        int newCapacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) capacity * 2, minCapacity));
+        for (Column c : columns) {
+            c.resize(newCapacity);
+        }
+        capacity = newCapacity;
+    }
+
+    //COLUMN STORAGE
+    /**
+     * Storage for one column: a typed array of values plus a bitmap of nulls.
+     */
+    private abstract static class Column implements java.io.Serializable {
+
+        long[] nulls;
+
+        Column(int capacity) {
+            nulls = new long[words(capacity)];
+        }
+
+        static int words(int capacity) {
+            return (capacity + 63) >>> 6;
+        }
+
+        boolean isNull(int row) {
+            return (nulls[row >>> 6] & (1L << row)) != 0;
+        }
+
+        void setNull(int row, boolean isNull) {
+            if (isNull) {
+                nulls[row >>> 6] |= (1L << row);
+            } else {
+                nulls[row >>> 6] &= ~(1L << row);
+            }
+        }
+
+        void resize(int capacity) {
+            nulls = Arrays.copyOf(nulls, words(capacity));
+            resizeValues(capacity);
+        }
+
+        /**
+         * Converts and stores a value. Values that cannot be converted are
+         * stored as null.
+         */
+        void set(int row, Object value) {
+            if (value == null) {
+                setNull(row, true);
+                clear(row);
+            } else {
+                setNull(row, !setValue(row, value));
+            }
+        }
+
+        abstract void resizeValues(int capacity);
+
+        /**
+         * Stores a non-null value.
+         *
+         * @return boolean False if the value could not be converted
+         */
+        abstract boolean setValue(int row, Object value);
+
+        /**
+         * Resets the value at a null position.
+         */
+        abstract void clear(int row);
+
+        /**
+         * Returns the boxed value at a position, or null.
+         */
+        Object get(int row) {
+            return isNull(row) ? null : getValue(row);
+        }
+
+        abstract Object getValue(int row);
+
+        String getString(int row) {
+            return String.valueOf(getValue(row));
+        }
+
+        long longValue(int row) {
+            return 0;
+        }
+
+        double doubleValue(int row) {
+            return longValue(row);
+        }
+    }
+
+    private static class IntColumn extends Column {
+
+        int[] values;
+
+        IntColumn(int capacity) {
+            super(capacity);
+            values = new int[capacity];
+        }
+
+        @Override
+        void resizeValues(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        boolean setValue(int row, Object value) {
+            if (value instanceof Number) {
+                values[row] = ((Number) value).intValue();
+                return true;
+            }
+            try {
+                values[row] = Integer.parseInt(value.toString().trim());
+                return true;
+            } catch (NumberFormatException nfe) {
+                values[row] = 0;
+                return false;
+            }
+        }
+
+        @Override
+        void clear(int row) {
+            values[row] = 0;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        String getString(int row) {
+            return Integer.toString(values[row]);
+        }
+
+        @Override
+        long longValue(int row) {
+            return values[row];
+        }
+    }
+
+    private static class LongColumn extends Column {
+
+        long[] values;
+
+        LongColumn(int capacity) {
+            super(capacity);
+            values = new long[capacity];
+        }
+
+        @Override
+        void resizeValues(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        boolean setValue(int row, Object value) {
+            if (value instanceof Number) {
+                values[row] = ((Number) value).longValue();
+                return true;
+            }
+            try {
+                values[row] = Long.parseLong(value.toString().trim());
+                return true;
+            } catch (NumberFormatException nfe) {
+                values[row] = 0;
+                return false;
+            }
+        }
+
+        @Override
+        void clear(int row) {
+            values[row] = 0;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        String getString(int row) {
+            return Long.toString(values[row]);
+        }
+
+        @Override
+        long longValue(int row) {
+            return values[row];
+        }
+    }
+
+    private static class DoubleColumn extends Column {
+
+        double[] values;
+
+        DoubleColumn(int capacity) {
+            super(capacity);
+            values = new double[capacity];
+        }
+
+        @Override
+        void resizeValues(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        boolean setValue(int row, Object value) {
+            if (value instanceof Number) {
+                values[row] = ((Number) value).doubleValue();
+                return true;
+            }
+            try {
+                values[row] = Double.parseDouble(value.toString().trim());
+                return true;
+            } catch (NumberFormatException nfe) {
+                values[row] = 0;
+                return false;
+            }
+        }
+
+        @Override
+        void clear(int row) {
+            values[row] = 0;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        String getString(int row) {
+            return Double.toString(values[row]);
+        }
+
+        @Override
+        long longValue(int row) {
+            return (long) values[row];
+        }
+
+        @Override
+        double doubleValue(int row) {
+            return values[row];
+        }
+    }
+
+    private static class DateColumn extends Column {
+
+        long[] values;
+        DateFormat format = new SimpleDateFormat(DEFAULT_DATE_FORMAT);
+
+        DateColumn(int capacity) {
+            super(capacity);
+            values = new long[capacity];
+        }
+
+        @Override
+        void resizeValues(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        boolean setValue(int row, Object value) {
+            if (value instanceof Date) {
+                values[row] = ((Date) value).getTime();
+                return true;
+            }
+            if (value instanceof Number) {
+                values[row] = ((Number) value).longValue();
+                return true;
+            }
+            try {
+                values[row] = format.parse(value.toString().trim()).getTime();
+                return true;
+            } catch (ParseException pe) {
+                values[row] = 0;
+                return false;
+            }
+        }
+
+        @Override
+        void clear(int row) {
+            values[row] = 0;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return new Date(values[row]);
+        }
+
+        @Override
+        String getString(int row) {
+            return format.format(new Date(values[row]));
+        }
+
+        @Override
+        long longValue(int row) {
+            return values[row];
+        }
+    }
+
+    private static class BooleanColumn extends Column {
+
+        long[] values;
+
+        BooleanColumn(int capacity) {
+            super(capacity);
+            values = new long[words(capacity)];
+        }
+
+        @Override
+        void resizeValues(int capacity) {
+            values = Arrays.copyOf(values, words(capacity));
+        }
+
+        @Override
+        boolean setValue(int row, Object value) {
+            Boolean b = null;
+            if (value instanceof Boolean) {
+                b = (Boolean) value;
+            } else {
+                String s = value.toString().trim();
+                if ("true".equalsIgnoreCase(s) || "yes".equalsIgnoreCase(s) || "y".equalsIgnoreCase(s) || "1".equals(s)) {
+                    b = Boolean.TRUE;
+                } else if ("false".equalsIgnoreCase(s) || "no".equalsIgnoreCase(s) || "n".equalsIgnoreCase(s) || "0".equals(s)) {
+                    b = Boolean.FALSE;
+                }
+            }
+
+            setBit(row, b != null && b);
+            return b != null;
+        }
+
+        private void setBit(int row, boolean b) {
+            if (b) {
+                values[row >>> 6] |= (1L << row);
+            } else {
+                values[row >>> 6] &= ~(1L << row);
+            }
+        }
+
+        boolean getBit(int row) {
+            return (values[row >>> 6] & (1L << row)) != 0;
+        }
+
+        @Override
+        void clear(int row) {
+            setBit(row, false);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return getBit(row);
+        }
+
+        @Override
+        long longValue(int row) {
+            return getBit(row) ? 1 : 0;
+        }
+    }
+
+    private static class StringColumn extends Column {
+
+        //dictionary encoding
+        int[] codes;
+        int encodedRows = 0;
+        List<String> dictionary = new ArrayList<>();
+        Map<String, Integer> dictionaryCodes = new HashMap<>();
+
+        //plain storage once the dictionary overflows
+        String[] values;
+
+        StringColumn(int capacity) {
+            super(capacity);
+            codes = new int[capacity];
+        }
+
+        @Override
+        void resizeValues(int capacity) {
+            if (values != null) {
+                values = Arrays.copyOf(values, capacity);
+            } else {
+                codes = Arrays.copyOf(codes, capacity);
+            }
+        }
+
+        @Override
+        boolean setValue(int row, Object value) {
+            String s = value.toString();
+
+            if (values != null) {
+                values[row] = s;
+                return true;
+            }
+
+            Integer code = dictionaryCodes.get(s);
+            if (code == null) {
+                if (dictionary.size() >= MAX_DICTIONARY_SIZE) {
+                    decode();
+                    values[row] = s;
+                    return true;
+                }
+                code = dictionary.size();
+                dictionary.add(s);
+                dictionaryCodes.put(s, code);
+            }
+            codes[row] = code;
+            encodedRows = Math.max(encodedRows, row + 1);
+
+            return true;
+        }
+
+        /**
+         * Switches from dictionary encoding to plain storage. Only the rows up
+         * to the last encoded value are decoded; the rest of the capacity is
+         * left null.
+         */
+        private void decode() {
+            values = new String[codes.length];
+            for (int i = 0; i < encodedRows; i++) {
+                if (!isNull(i)) {
+                    values[i] = dictionary.get(codes[i]);
+                }
+            }
+            codes = null;
+            dictionary = null;
+            dictionaryCodes = null;
+        }
+
+        @Override
+        void clear(int row) {
+            if (values != null) {
+                values[row] = null;
+            } else {
+                codes[row] = 0;
+            }
+        }
+
+        @Override
+        Object getValue(int row) {
+            return getString(row);
+        }
+
+        @Override
+        String getString(int row) {
+            return (values != null) ? values[row] : dictionary.get(codes[row]);
+        }
+
+        @Override
+        long longValue(int row) {
+            return (long) doubleValue(row);
+        }
+
+        @Override
+        double doubleValue(int row) {
+            try {
+                return Double.parseDouble(getString(row).trim());
+            } catch (NumberFormatException nfe) {
+                return 0;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,347 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * A GridMap that many threads can read and write at once. Cells are spread
+ * over a number of stripes, each a LongObjectMap with its own lock, so
+ * writers only contend when they hit the same stripe. Reads are usually
+ * lock-free: they read optimistically and fall back to a read lock only if a
+ * write to the same stripe got in the way.
+ * <P>
+ * The dimensions are tracked with atomic integers, and column names and the
+ * row and column indexes are held in concurrent maps. Each call is atomic on
+ * its own; sequences of calls are not. Iterators and Spliterators are weakly
+ * consistent: they never fail because of concurrent changes, but may or may
+ * not see them.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class ConcurrentGridMap extends GridMap {
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    private final AtomicInteger numRows = new AtomicInteger();
+    private final AtomicInteger numCols = new AtomicInteger();
+
+    //populated columns of each row, and populated rows of each column
+    private final ConcurrentHashMap<Integer, SortedIntSet> rowIndex = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, SortedIntSet> columnIndex = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an empty ConcurrentGridMap with four stripes per available
+     * processor.
+     */
+    public ConcurrentGridMap() {
+        this(16, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Constructs an empty ConcurrentGridMap.
+     *
+     * @param initialCapacity The number of items to make room for
+     * @param concurrencyLevel The expected number of concurrent writers. The
+     * number of stripes is the next power of two.
+     */
+    public ConcurrentGridMap(int initialCapacity, int concurrencyLevel) {
+        super(0);
+
+        int numStripes = Integer.highestOneBit(Math.max(1, Math.min(concurrencyLevel, 1 << 16)) * 2 - 1);
+        stripes = new Stripe[numStripes];
+        for (int i = 0; i < numStripes; i++) {
+            stripes[i] = new Stripe(Math.max(initialCapacity / numStripes, 2));
+        }
+
+        //the stripe is chosen from the high bits of the hash, the slot from the low bits
+        stripeShift = 32 - Integer.numberOfTrailingZeros(numStripes);
+
+        setColumnNames(new ConcurrentHashMap());
+    }
+
+    @Override
+    public int getNumRows() {
+        return numRows.get();
+    }
+
+    @Override
+    public int getNumCols() {
+        return numCols.get();
+    }
+
+    @Override
+    public int getNumItems() {
+        int output = 0;
+
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                output += stripe.map.size();
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+
+        return output;
+    }
+
+    @Override
+    public Object getItem(int row, int column) {
+        long key = key(row, column);
+        Object output = stripeFor(key).get(key);
+
+        if (output == null && !isReturnNulls()) {
+            output = "";
+        }
+
+        return output;
+    }
+
+    @Override
+    public void setItem(int row, int column, Object value) {
+        long key = key(row, column);
+        Stripe stripe = stripeFor(key);
+
+        long stamp = stripe.lock.writeLock();
+        try {
+            Object old = stripe.map.put(key, value);
+
+            //indexes are updated under the stripe lock, so changes to one cell stay in order
+            if (old == null && value != null) {
+                addToIndex(rowIndex, row, column);
+                addToIndex(columnIndex, column, row);
+            } else if (old != null && value == null) {
+                removeFromIndex(rowIndex, row, column);
+                removeFromIndex(columnIndex, column, row);
+            }
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+
+        updateMax(numRows, row);
+        updateMax(numCols, column);
+    }
+
+    /**
+     * Sets an item by column name, adding the column if it does not exist.
+     * Threads adding the same new column name get the same column.
+     */
+    @Override
+    public void setItem(int row, String columnName, Object value) {
+        int columnNumber = 0;
+
+        if (!Utils.isEmpty(columnName)) {
+            Integer existing = (Integer) getColumnNames().get(columnName.toUpperCase());
+            columnNumber = (existing != null) ? existing : addColumn(columnName);
+        }
+
+        setItem(row, columnNumber, value);
+    }
+
+    /**
+     * Adds a new column to the end of the GridMap, or returns the position of
+     * the column if it already exists.
+     */
+    @Override
+    public synchronized int addColumn(String columnName) {
+        Integer existing = (Integer) getColumnNames().get(columnName.toUpperCase());
+        if (existing != null) {
+            return existing;
+        }
+
+        return super.addColumn(columnName);
+    }
+
+    @Override
+    public int[] getPopulatedColumns(int row) {
+        return toArray(rowIndex.get(row));
+    }
+
+    @Override
+    public int[] getPopulatedRows(int column) {
+        return toArray(columnIndex.get(column));
+    }
+
+    @Override
+    public Spliterator<Cell> cellSpliterator() {
+        return new StripeSpliterator(0, stripes.length);
+    }
+
+    @Override
+    protected Object getValue(int row, int column) {
+        long key = key(row, column);
+
+        return stripeFor(key).get(key);
+    }
+
+    private static void addToIndex(ConcurrentHashMap<Integer, SortedIntSet> index, int line, int position) {
+        SortedIntSet positions = index.computeIfAbsent(line, k -> new SortedIntSet());
+
+        synchronized (positions) {
+            positions.add(position);
+        }
+    }
+
+    private static void removeFromIndex(ConcurrentHashMap<Integer, SortedIntSet> index, int line, int position) {
+        //empty sets are left in place, since another thread may be adding to them
+        SortedIntSet positions = index.get(line);
+
+        if (positions != null) {
+            synchronized (positions) {
+                positions.remove(position);
+            }
+        }
+    }
+
+    private static int[] toArray(SortedIntSet positions) {
+        if (positions == null) {
+            return new int[0];
+        }
+
+        synchronized (positions) {
+            return positions.toArray();
+        }
+    }
+
+    private Stripe stripeFor(long key) {
+        return stripes[LongObjectMap.hash(key) >>> stripeShift & (stripes.length - 1)];
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+        int current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * One stripe of cells and its lock.
+     */
+    private static class Stripe implements java.io.Serializable {
+
+        private final LongObjectMap map;
+        private final StampedLock lock = new StampedLock();
+
+        Stripe(int initialCapacity) {
+            map = new LongObjectMap(initialCapacity);
+        }
+
+        Object get(long key) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    Object output = map.get(key);
+                    if (lock.validate(stamp)) {
+                        return output;
+                    }
+                } catch (RuntimeException e) {
+                    //a concurrent resize was seen half done; retry under the lock
+                }
+            }
+
+            stamp = lock.readLock();
+            try {
+                return map.get(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    /**
+     * Visits the cells of a range of stripes. Each stripe is copied under its
+     * read lock when the Spliterator reaches it.
+     */
+    private class StripeSpliterator implements Spliterator<Cell> {
+
+        private int stripe;
+        private final int end;
+        private Iterator<Cell> current = null;
+
+        StripeSpliterator(int stripe, int end) {
+            this.stripe = stripe;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Cell> action) {
+            while (current == null || !current.hasNext()) {
+                if (stripe >= end) {
+                    return false;
+                }
+                current = snapshot(stripes[stripe++]).iterator();
+            }
+
+            action.accept(current.next());
+            return true;
+        }
+
+        @Override
+        public Spliterator<Cell> trySplit() {
+            int mid = (stripe + end) >>> 1;
+            if (current != null || mid <= stripe) {
+                return null;
+            }
+
+            Spliterator<Cell> prefix = new StripeSpliterator(stripe, mid);
+            stripe = mid;
+
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return (long) getNumItems() * (end - stripe) / stripes.length;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL | DISTINCT;
+        }
+
+        private List<Cell> snapshot(Stripe source) {
+            long stamp = source.lock.readLock();
+            try {
+                LongObjectMap cells = source.map;
+                List<Cell> output = new ArrayList<>(cells.size());
+
+                for (int slot = 0; slot < cells.capacity(); slot++) {
+                    if (cells.isSlotUsed(slot)) {
+                        long key = cells.slotKey(slot);
+                        output.add(new Cell((int) (key >> 32), (int) key, cells.slotValue(slot)));
+                    }
+                }
+
+                return output;
+            } finally {
+                source.lock.unlockRead(stamp);
+            }
+        }
+    }
+
+}
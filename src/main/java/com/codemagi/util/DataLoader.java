@@ -16,8 +16,16 @@
 package com.codemagi.util;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -25,6 +33,9 @@ import org.apache.logging.log4j.Logger;
 /**
  * DataLoader class handles loading and parsing of data from tab or comma
  * delimited text files.
+ * <P>
+ * Files compressed with gzip or zip are detected by their first bytes and
+ * decompressed as they are read, so they can be loaded directly.
  *
  * @version 1.0
  * @author August Detlefsen for CodeMagi, Inc.
@@ -33,6 +44,28 @@ public class DataLoader {
 
     static Logger log = LogManager.getLogger("com.codemagi.util.DataLoader");
 
+    //size of the character buffer used when streaming data files
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    //smallest byte range worth parsing as a separate parallel chunk
+    private static final long MIN_CHUNK_SIZE = 1024 * 1024;
+
+    //number of chunks per worker thread, so that uneven chunks balance out
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    //rows counted locally before they are added to the shared IngestMetrics
+    private static final int PROGRESS_BATCH_ROWS = 1024;
+
+    //longest header row that can be read ahead to resolve column names
+    private static final int HEADER_READ_LIMIT = 1024 * 1024;
+
+    //size of the buffers used when reading and decompressing files
+    private static final int DECOMPRESS_BUFFER_SIZE = 256 * 1024;
+
+    //leading bytes of gzip and zip files
+    private static final byte[] GZIP_MAGIC = {(byte) 0x1f, (byte) 0x8b};
+    private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+
     /**
      * Read data from a file.
      *
@@ -43,11 +76,7 @@ public class DataLoader {
     private static BufferedReader openDataFile(String name) {
         try {
 
-            String fileData = FileUtils.getFileAsString(name);
-
-            ByteArrayInputStream in = new ByteArrayInputStream(fileData.getBytes());
-
-            return new BufferedReader(new InputStreamReader(in));
+            return openReader(name);
 
         } catch (Exception e) {
             System.out.println("Error reading file " + name);
@@ -56,6 +85,123 @@ public class DataLoader {
         return null;
     }
 
+    /**
+     * Opens a buffered Reader over a file. The file is read incrementally, so
+     * only the buffer is held in memory regardless of the size of the file.
+     *
+     * @param name Filename/path to load data from
+     * @return BufferedReader BufferedReader over the contents of the file
+     * @throws IOException If the file cannot be opened
+     */
+    private static BufferedReader openReader(String name) throws IOException {
+        return new BufferedReader(new InputStreamReader(openDataStream(name)), READ_BUFFER_SIZE);
+    }
+
+    /**
+     * Opens an InputStream over the contents of a data file. Files compressed
+     * with gzip are decompressed as they are read. For zip files, the stream
+     * contains the first file in the archive.
+     *
+     * @param name Filename/path to load data from
+     * @return InputStream Buffered InputStream over the uncompressed data
+     * @throws IOException If the file cannot be opened, or is a zip file that
+     * contains no files
+     */
+    public static InputStream openDataStream(String name) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(name), DECOMPRESS_BUFFER_SIZE);
+
+        try {
+            byte[] magic = new byte[ZIP_MAGIC.length];
+
+            in.mark(magic.length);
+            int read = in.readNBytes(magic, 0, magic.length);
+            in.reset();
+
+            if (startsWith(magic, read, GZIP_MAGIC)) {
+                log.debug("decompressing gzip file " + name);
+
+                return new BufferedInputStream(new GZIPInputStream(in, DECOMPRESS_BUFFER_SIZE), DECOMPRESS_BUFFER_SIZE);
+            }
+
+            if (startsWith(magic, read, ZIP_MAGIC)) {
+                ZipInputStream zip = new ZipInputStream(in);
+
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null && entry.isDirectory()) {
+                    //skip directories
+                }
+                if (entry == null) {
+                    throw new IOException("Zip file " + name + " contains no files");
+                }
+                log.debug("decompressing " + entry.getName() + " from zip file " + name);
+
+                return new BufferedInputStream(zip, DECOMPRESS_BUFFER_SIZE);
+            }
+
+            return in;
+
+        } catch (IOException ioe) {
+            in.close();
+            throw ioe;
+        }
+    }
+
+    /**
+     * Returns true if a file is compressed with gzip or zip.
+     *
+     * @param name Filename/path to check
+     * @throws IOException If the file cannot be read
+     */
+    public static boolean isCompressed(String name) throws IOException {
+        try (InputStream in = new FileInputStream(name)) {
+            byte[] magic = new byte[ZIP_MAGIC.length];
+            int read = in.readNBytes(magic, 0, magic.length);
+
+            return startsWith(magic, read, GZIP_MAGIC) || startsWith(magic, read, ZIP_MAGIC);
+        }
+    }
+
+    /**
+     * Returns true if the first length bytes of data begin with prefix.
+     */
+    private static boolean startsWith(byte[] data, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wraps a Reader in a BufferedReader, unless it is one already.
+     */
+    private static BufferedReader toBufferedReader(Reader in) {
+        if (in instanceof BufferedReader) {
+            return (BufferedReader) in;
+        }
+
+        return new BufferedReader(in, READ_BUFFER_SIZE);
+    }
+
+    /**
+     * Quietly closes a Reader.
+     */
+    private static void close(Reader in) {
+        if (in == null) {
+            return;
+        }
+
+        try {
+            in.close();
+        } catch (IOException ioe) {
+            log.debug("Error closing reader", ioe);
+        }
+    }
+
     /**
      * Cleans data before parsing.
      *
@@ -79,13 +225,48 @@ public class DataLoader {
      * input data
      */
     public static ObjectFlatFile loadDataFromString(String data, String delimiter, boolean hasHeaders) {
+        return loadDataFromString(data, delimiter, hasHeaders, new LoadOptions());
+    }
+
+    /**
+     * Constructs a ObjectFlatFile data structure from an input String,
+     * converting each field to the type of its column in the schema.
+     *
+     * @param data The dataset to build the ObjectFlatFile from
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param schema ColumnSchema to convert fields with. If null, fields are
+     * left as Strings.
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    public static ObjectFlatFile loadDataFromString(String data, String delimiter, boolean hasHeaders, ColumnSchema schema) {
+        return loadDataFromString(data, delimiter, hasHeaders, options(schema));
+    }
+
+    /**
+     * Constructs a ObjectFlatFile data structure from an input String, keeping
+     * only the columns and rows selected by the options.
+     *
+     * @param data The dataset to build the ObjectFlatFile from
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    public static ObjectFlatFile loadDataFromString(String data, String delimiter, boolean hasHeaders, LoadOptions options) {
         //this method returns a ObjectFlatFile (vector of vectors, of Strings) object
         log.debug("loading data from String");
 
         ByteArrayInputStream in = new ByteArrayInputStream(data.getBytes());
         BufferedReader f = new BufferedReader(new InputStreamReader(in));
 
-        return parseData(f, delimiter, hasHeaders);
+        return parseData(f, delimiter, hasHeaders, options);
     }
 
     /**
@@ -101,13 +282,50 @@ public class DataLoader {
      * input data
      */
     public static ObjectFlatFile loadDataFromQuotedString(String data, String delimiter, boolean hasHeaders) {
+        return loadDataFromQuotedString(data, delimiter, hasHeaders, new LoadOptions());
+    }
+
+    /**
+     * Constructs a ObjectFlatFile data structure from an input String where
+     * fields are quoted, converting each field to the type of its column in
+     * the schema.
+     *
+     * @param data The dataset to build the ObjectFlatFile from
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param schema ColumnSchema to convert fields with. If null, fields are
+     * left as Strings.
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    public static ObjectFlatFile loadDataFromQuotedString(String data, String delimiter, boolean hasHeaders, ColumnSchema schema) {
+        return loadDataFromQuotedString(data, delimiter, hasHeaders, options(schema));
+    }
+
+    /**
+     * Constructs a ObjectFlatFile data structure from an input String where
+     * fields are quoted, keeping only the columns and rows selected by the
+     * options.
+     *
+     * @param data The dataset to build the ObjectFlatFile from
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    public static ObjectFlatFile loadDataFromQuotedString(String data, String delimiter, boolean hasHeaders, LoadOptions options) {
         //this method returns a ObjectFlatFile (vector of vectors, of Strings) object
         log.debug("loading data from quoted String");
 
         ByteArrayInputStream in = new ByteArrayInputStream(data.getBytes());
         BufferedReader f = new BufferedReader(new InputStreamReader(in));
 
-        return parseQuotedData(f, delimiter, hasHeaders);
+        return parseQuotedData(f, delimiter, hasHeaders, options);
     }
 
     /**
@@ -122,219 +340,1218 @@ public class DataLoader {
      * input data
      */
     public static ObjectFlatFile loadDataFromFile(String dataFile, String delimiter, boolean hasHeaders) {
-        //this method returns a ObjectFlatFile (vector of vectors, of Strings) object
-        log.debug("loading data from file");
-
-        BufferedReader f = openDataFile(dataFile);
-
-        return parseData(f, delimiter, hasHeaders);
+        return loadDataFromFile(dataFile, delimiter, hasHeaders, new LoadOptions());
     }
 
     /**
-     * Constructs a ObjectFlatFile data structure from and input File
+     * Constructs a ObjectFlatFile data structure from an input File,
+     * converting each field to the type of its column in the schema. Typed
+     * values can then be read with getInteger, getDate, etc. without parsing
+     * them again.
      *
      * @param dataFile The filename/path of the input file
-     * @param dataMap An array of ints that specify the width of each column
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
      * @param hasHeaders Whether or not the input dataset has headers. If true,
      * the first line of the dataset will be skipped
+     * @param schema ColumnSchema to convert fields with. If null, fields are
+     * left as Strings.
      * @return ObjectFlatFile ObjectFlatFile data structure constructed from
      * input data
      */
-    public static ObjectFlatFile loadFixedWidthFile(String dataFile, int[] dataMap, boolean hasHeaders) {
-        //this method returns a ObjectFlatFile (vector of vectors, of Strings) object
-        log.debug("loading data from fixed-width file");
-
-        BufferedReader f = openDataFile(dataFile);
-
-        return parseFixedWidth(f, dataMap, hasHeaders);
+    public static ObjectFlatFile loadDataFromFile(String dataFile, String delimiter, boolean hasHeaders, ColumnSchema schema) {
+        return loadDataFromFile(dataFile, delimiter, hasHeaders, options(schema));
     }
 
     /**
-     * Helper method that does the actual parsing for loadDataFromX methods.
+     * Constructs a ObjectFlatFile data structure from an input File, keeping
+     * only the columns and rows selected by the options. When the file can be
+     * memory-mapped, rejected rows and unselected fields are never decoded.
      *
-     * @param f BufferedReader to construct the ObjectFlatFile from
+     * @param dataFile The filename/path of the input file
      * @param delimiter The delimiter to use when parsing the data. This should
      * be a single character such as "," or "\t"
      * @param hasHeaders Whether or not the input dataset has headers. If true,
      * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
      * @return ObjectFlatFile ObjectFlatFile data structure constructed from
      * input data
      */
-    private static ObjectFlatFile parseData(BufferedReader f, String delimiter, boolean hasHeaders) {
-
-        ObjectFlatFile parsedData = new ObjectFlatFile();
-
-        String line;
-        String lineCleaned;
-
-        StringChopper st;
-
-        List lineValues;
+    public static ObjectFlatFile loadDataFromFile(String dataFile, String delimiter, boolean hasHeaders, LoadOptions options) {
+        //this method returns a ObjectFlatFile (vector of vectors, of Strings) object
+        log.debug("loading data from file");
 
-        try {
-            String element;
+        if (isMappable(dataFile)) {
+            ObjectFlatFile parsedData = new ObjectFlatFile();
 
-            System.out.print("parsing data ");
+            try {
+                parseMappedData(dataFile, delimiter, hasHeaders, options, new FlatFileRowHandler(parsedData));
 
-            if (hasHeaders) {
-                f.readLine();   //skip header row
+            } catch (Exception e) {
+                System.out.println("Error reading file " + dataFile);
+                log.debug("loadDataFromFile: Exception", e);
             }
-            while ((line = f.readLine()) != null) {
-                //read lines from the data file
-                System.out.print(".");
 
-                //first clean the line
-                lineCleaned = cleanString(line);
-
-                st = new StringChopper(lineCleaned, delimiter);
-
-                lineValues = new ArrayList();
-
-                while (st.hasMoreTokens()) {
-                    element = (String) st.nextElement();
-
-                    if (element == null) {
-                        element = "";
-                    }
-
-                    lineValues.add(element);
-                    //System.out.print(element + "|");
-                }
-                //System.out.println("");
-                parsedData.addRow(lineValues);
-                //System.out.println("loadDataFromFile: new row added to loadedData");
-            }
+            return parsedData;
+        }
 
-            System.out.println("");
+        BufferedReader f = openDataFile(dataFile);
 
-        } catch (Exception e) {
-            log.debug("loadDataFromFile: Exception", e);
+        try {
+            return parseData(f, delimiter, hasHeaders, options);
+        } finally {
+            close(f);
         }
+    }
 
-        return parsedData;
+    /**
+     * Constructs a ObjectFlatFile data structure from and input File
+     *
+     * @param dataFile The filename/path of the input file
+     * @param dataMap An array of ints that specify the width of each column
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    public static ObjectFlatFile loadFixedWidthFile(String dataFile, int[] dataMap, boolean hasHeaders) {
+        return loadFixedWidthFile(dataFile, dataMap, hasHeaders, new LoadOptions());
+    }
 
+    /**
+     * Constructs a ObjectFlatFile data structure from and input File,
+     * converting each field to the type of its column in the schema.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param dataMap An array of ints that specify the width of each column
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param schema ColumnSchema to convert fields with. If null, fields are
+     * left as Strings.
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    public static ObjectFlatFile loadFixedWidthFile(String dataFile, int[] dataMap, boolean hasHeaders, ColumnSchema schema) {
+        return loadFixedWidthFile(dataFile, dataMap, hasHeaders, options(schema));
     }
 
     /**
-     * Helper method that does the actual parsing for loadFixedWidthX methods.
+     * Constructs a ObjectFlatFile data structure from and input File,
+     * containing only the specified columns. Columns that are not selected are
+     * skipped over without being read into Strings.
      *
-     * @param f BufferedReader to construct the ObjectFlatFile from
-     * @param dataMap The delimiter to use when parsing the data. This should be
-     * a single character such as "," or "\t"
+     * @param dataFile The filename/path of the input file
+     * @param dataMap An array of ints that specify the width of each column
+     * @param columns zero-based numbers of the columns to load, in the order
+     * they should appear in each row, or null to load all columns
      * @param hasHeaders Whether or not the input dataset has headers. If true,
      * the first line of the dataset will be skipped
      * @return ObjectFlatFile ObjectFlatFile data structure constructed from
      * input data
      */
-    private static ObjectFlatFile parseFixedWidth(BufferedReader f, int[] dataMap, boolean hasHeaders) {
+    public static ObjectFlatFile loadFixedWidthFile(String dataFile, int[] dataMap, int[] columns, boolean hasHeaders) {
+        return loadFixedWidthFile(dataFile, dataMap, columns, hasHeaders, null);
+    }
 
-        ObjectFlatFile parsedData = new ObjectFlatFile();
+    /**
+     * Constructs a ObjectFlatFile data structure from and input File,
+     * containing only the specified columns, and converting each field to the
+     * type of its column in the schema.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param dataMap An array of ints that specify the width of each column
+     * @param columns zero-based numbers of the columns to load, in the order
+     * they should appear in each row, or null to load all columns
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param schema ColumnSchema to convert fields with, describing the loaded
+     * columns. If null, fields are left as Strings.
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    public static ObjectFlatFile loadFixedWidthFile(String dataFile, int[] dataMap, int[] columns, boolean hasHeaders, ColumnSchema schema) {
+        LoadOptions options = options(schema);
+        options.setColumns(columns);
 
-        String line;
-        String lineCleaned;
+        return loadFixedWidthFile(dataFile, dataMap, hasHeaders, options);
+    }
 
-        List lineValues;
+    /**
+     * Constructs a ObjectFlatFile data structure from and input File, keeping
+     * only the columns and rows selected by the options.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param dataMap An array of ints that specify the width of each column
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    public static ObjectFlatFile loadFixedWidthFile(String dataFile, int[] dataMap, boolean hasHeaders, LoadOptions options) {
+        //this method returns a ObjectFlatFile (vector of vectors, of Strings) object
+        log.debug("loading data from fixed-width file");
 
-        try {
-            String element;
+        if (isMappable(dataFile)) {
+            ObjectFlatFile parsedData = new ObjectFlatFile();
 
-            System.out.print("parsing data ");
+            try {
+                parseMappedFixedWidth(dataFile, dataMap, hasHeaders, options, new FlatFileRowHandler(parsedData));
 
-            if (hasHeaders) {
-                f.readLine();   //skip header row
+            } catch (Exception e) {
+                System.out.println("Error reading file " + dataFile);
+                log.debug("loadFixedWidthFile: Exception", e);
             }
-            while ((line = f.readLine()) != null) {
-                //read lines from the data file
-                System.out.print(".");
-
-                int lineIndex = 0;
-
-                lineValues = new ArrayList();
-
-                for (int i = 0; i < dataMap.length; i++) {
-                    int colWidth = dataMap[i];
-
-                    element = line.substring(Math.min(lineIndex, line.length()), Math.min((lineIndex + colWidth), line.length()));
 
-                    log.debug("ELEMENT FROM: " + lineIndex + " TO: " + (lineIndex + colWidth) + " IS: " + element);
-
-                    lineIndex += colWidth;
-
-                    if (element == null) {
-                        element = "";
-                    }
-
-                    lineValues.add(element);
-                    //System.out.print(element + "|");
-                }
-                //System.out.println("");
-                parsedData.addRow(lineValues);
-                //System.out.println("loadDataFromFile: new row added to loadedData");
-            }
+            return parsedData;
+        }
 
-            System.out.println("");
+        BufferedReader f = openDataFile(dataFile);
 
-        } catch (Exception e) {
-            log.debug("loadDataFromFile: Exception", e);
+        try {
+            return parseFixedWidth(f, dataMap, hasHeaders, options);
+        } finally {
+            close(f);
         }
+    }
 
-        return parsedData;
+    /**
+     * Constructs a ObjectFlatFile data structure from an input File, parsing
+     * chunks of the file in parallel on the common ForkJoinPool.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    public static ObjectFlatFile loadDataFromFileParallel(String dataFile, String delimiter, boolean hasHeaders) {
+        return loadDataFromFileParallel(dataFile, delimiter, hasHeaders, ForkJoinPool.commonPool());
+    }
 
+    /**
+     * Constructs a ObjectFlatFile data structure from an input File, parsing
+     * chunks of the file in parallel. The file is split into byte ranges that
+     * are aligned on line boundaries, each range is parsed by a task on the
+     * pool, and the rows are assembled in their original order. The result is
+     * the same as loadDataFromFile.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param pool ForkJoinPool to parse chunks on
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    public static ObjectFlatFile loadDataFromFileParallel(String dataFile, String delimiter, boolean hasHeaders, ForkJoinPool pool) {
+        return loadDataFromFileParallel(dataFile, delimiter, hasHeaders, new LoadOptions(), pool);
     }
 
     /**
-     * Helper method that does the actual parsing of quoted strings for
-     * loadDataFromX methods.
+     * Constructs a ObjectFlatFile data structure from an input File, parsing
+     * chunks of the file in parallel and keeping only the columns and rows
+     * selected by the options. The result is the same as loadDataFromFile.
      *
-     * @param f BufferedReader to construct the ObjectFlatFile from
+     * @param dataFile The filename/path of the input file
      * @param delimiter The delimiter to use when parsing the data. This should
      * be a single character such as "," or "\t"
      * @param hasHeaders Whether or not the input dataset has headers. If true,
      * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows. The row filter
+     * must be thread-safe.
+     * @param pool ForkJoinPool to parse chunks on
      * @return ObjectFlatFile ObjectFlatFile data structure constructed from
      * input data
      */
-    private static ObjectFlatFile parseQuotedData(BufferedReader f, String delimiter, boolean hasHeaders) {
+    public static ObjectFlatFile loadDataFromFileParallel(String dataFile, final String delimiter, boolean hasHeaders,
+            LoadOptions options, ForkJoinPool pool) {
+        log.debug("loading data from file in parallel");
 
-        ObjectFlatFile parsedData = new ObjectFlatFile();
+        if (!isMappable(dataFile)) {
+            return loadDataFromFile(dataFile, delimiter, hasHeaders, options);
+        }
+
+        try {
+            int[] columns = getColumns(options, hasHeaders, dataFile, delimiter, null);
+
+            return parseMappedParallel(dataFile, hasHeaders, options, columns, pool, new ScannerFactory() {
+                @Override
+                public MappedLineScanner newScanner() {
+                    return new MappedDelimitedParser(delimiter);
+                }
+            });
+
+        } catch (Exception e) {
+            System.out.println("Error reading file " + dataFile);
+            log.debug("loadDataFromFileParallel: Exception", e);
+        }
+
+        return new ObjectFlatFile();
+    }
+
+    /**
+     * Constructs a ObjectFlatFile data structure from a fixed-width File,
+     * parsing chunks of the file in parallel on the common ForkJoinPool.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param dataMap An array of ints that specify the width of each column
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    public static ObjectFlatFile loadFixedWidthFileParallel(String dataFile, int[] dataMap, boolean hasHeaders) {
+        return loadFixedWidthFileParallel(dataFile, dataMap, hasHeaders, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a ObjectFlatFile data structure from a fixed-width File,
+     * parsing chunks of the file in parallel. The result is the same as
+     * loadFixedWidthFile.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param dataMap An array of ints that specify the width of each column
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param pool ForkJoinPool to parse chunks on
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    public static ObjectFlatFile loadFixedWidthFileParallel(String dataFile, int[] dataMap, boolean hasHeaders, ForkJoinPool pool) {
+        return loadFixedWidthFileParallel(dataFile, dataMap, hasHeaders, new LoadOptions(), pool);
+    }
+
+    /**
+     * Constructs a ObjectFlatFile data structure from a fixed-width File,
+     * parsing chunks of the file in parallel and keeping only the columns and
+     * rows selected by the options. The result is the same as
+     * loadFixedWidthFile.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param dataMap An array of ints that specify the width of each column
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows. The row filter
+     * must be thread-safe.
+     * @param pool ForkJoinPool to parse chunks on
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    public static ObjectFlatFile loadFixedWidthFileParallel(String dataFile, final int[] dataMap, boolean hasHeaders,
+            LoadOptions options, ForkJoinPool pool) {
+        log.debug("loading data from fixed-width file in parallel");
+
+        if (!isMappable(dataFile)) {
+            return loadFixedWidthFile(dataFile, dataMap, hasHeaders, options);
+        }
+
+        try {
+            int[] columns = getColumns(options, hasHeaders, dataFile, null, dataMap);
+
+            return parseMappedParallel(dataFile, hasHeaders, options, columns, pool, new ScannerFactory() {
+                @Override
+                public MappedLineScanner newScanner() {
+                    return new MappedFixedWidthParser(dataMap);
+                }
+            });
+
+        } catch (Exception e) {
+            System.out.println("Error reading file " + dataFile);
+            log.debug("loadFixedWidthFileParallel: Exception", e);
+        }
+
+        return new ObjectFlatFile();
+    }
+
+    /**
+     * Infers a ColumnSchema for a delimited file from its first rows.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param sampleSize The maximum number of rows to sample
+     * @return ColumnSchema The inferred schema
+     * @throws IOException If the file cannot be read
+     */
+    public static ColumnSchema inferSchema(String dataFile, String delimiter, boolean hasHeaders, int sampleSize)
+            throws IOException {
+
+        List sample = new ArrayList(Math.max(0, sampleSize));
+
+        BufferedReader f = openReader(dataFile);
+        try {
+            String line;
+
+            if (hasHeaders) {
+                f.readLine();   //skip header row
+            }
+            while (sample.size() < sampleSize && (line = f.readLine()) != null) {
+                sample.add(splitLine(line, delimiter));
+            }
+        } finally {
+            close(f);
+        }
+
+        return ColumnSchema.infer(sample);
+    }
+
+    /**
+     * Streams the rows of a delimited file to a RowHandler, one row at a time.
+     * The file is read incrementally, so files larger than the heap can be
+     * processed.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     * @throws IOException If the file cannot be read
+     */
+    public static long streamDataFromFile(String dataFile, String delimiter, boolean hasHeaders, RowHandler handler)
+            throws IOException {
+        return streamDataFromFile(dataFile, delimiter, hasHeaders, new LoadOptions(), handler);
+    }
+
+    /**
+     * Streams the rows of a delimited file to a RowHandler, one row at a time,
+     * passing only the columns and rows selected by the options.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     * @throws IOException If the file cannot be read
+     */
+    public static long streamDataFromFile(String dataFile, String delimiter, boolean hasHeaders, LoadOptions options,
+            RowHandler handler) throws IOException {
+        log.debug("streaming data from file");
+
+        if (isMappable(dataFile)) {
+            return parseMappedData(dataFile, delimiter, hasHeaders, options, handler);
+        }
+
+        BufferedReader f = openReader(dataFile);
+
+        try {
+            return parseData(f, delimiter, hasHeaders, options, handler);
+        } finally {
+            close(f);
+        }
+    }
+
+    /**
+     * Streams the rows of a delimited file where fields are quoted to a
+     * RowHandler, one row at a time.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     * @throws IOException If the file cannot be read
+     */
+    public static long streamQuotedDataFromFile(String dataFile, String delimiter, boolean hasHeaders, RowHandler handler)
+            throws IOException {
+        return streamQuotedDataFromFile(dataFile, delimiter, hasHeaders, new LoadOptions(), handler);
+    }
+
+    /**
+     * Streams the rows of a delimited file where fields are quoted to a
+     * RowHandler, one row at a time, passing only the columns and rows
+     * selected by the options.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     * @throws IOException If the file cannot be read
+     */
+    public static long streamQuotedDataFromFile(String dataFile, String delimiter, boolean hasHeaders, LoadOptions options,
+            RowHandler handler) throws IOException {
+        log.debug("streaming data from quoted file");
+
+        BufferedReader f = openReader(dataFile);
+
+        try {
+            return parseQuotedData(f, delimiter, hasHeaders, options, handler);
+        } finally {
+            close(f);
+        }
+    }
+
+    /**
+     * Streams the rows of a fixed-width file to a RowHandler, one row at a
+     * time.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param dataMap An array of ints that specify the width of each column
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     * @throws IOException If the file cannot be read
+     */
+    public static long streamFixedWidthFile(String dataFile, int[] dataMap, boolean hasHeaders, RowHandler handler)
+            throws IOException {
+        return streamFixedWidthFile(dataFile, dataMap, hasHeaders, new LoadOptions(), handler);
+    }
+
+    /**
+     * Streams the rows of a fixed-width file to a RowHandler, one row at a
+     * time, passing only the columns and rows selected by the options.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param dataMap An array of ints that specify the width of each column
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     * @throws IOException If the file cannot be read
+     */
+    public static long streamFixedWidthFile(String dataFile, int[] dataMap, boolean hasHeaders, LoadOptions options,
+            RowHandler handler) throws IOException {
+        log.debug("streaming data from fixed-width file");
+
+        if (isMappable(dataFile)) {
+            return parseMappedFixedWidth(dataFile, dataMap, hasHeaders, options, handler);
+        }
+
+        BufferedReader f = openReader(dataFile);
+
+        try {
+            return parseFixedWidth(f, dataMap, hasHeaders, options, handler);
+        } finally {
+            close(f);
+        }
+    }
+
+    /**
+     * Streams delimited rows from a Reader to a RowHandler, one row at a time.
+     * The Reader is not closed.
+     *
+     * @param in Reader to parse data from
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     * @throws IOException If the Reader cannot be read
+     */
+    public static long streamData(Reader in, String delimiter, boolean hasHeaders, RowHandler handler)
+            throws IOException {
+        return streamData(in, delimiter, hasHeaders, new LoadOptions(), handler);
+    }
+
+    /**
+     * Streams delimited rows from a Reader to a RowHandler, one row at a time,
+     * passing only the columns and rows selected by the options. The Reader is
+     * not closed.
+     *
+     * @param in Reader to parse data from
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     * @throws IOException If the Reader cannot be read
+     */
+    public static long streamData(Reader in, String delimiter, boolean hasHeaders, LoadOptions options, RowHandler handler)
+            throws IOException {
+        return parseData(toBufferedReader(in), delimiter, hasHeaders, options, handler);
+    }
+
+    /**
+     * Streams quoted, delimited rows from a Reader to a RowHandler, one row at
+     * a time. The Reader is not closed.
+     *
+     * @param in Reader to parse data from
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     * @throws IOException If the Reader cannot be read
+     */
+    public static long streamQuotedData(Reader in, String delimiter, boolean hasHeaders, RowHandler handler)
+            throws IOException {
+        return streamQuotedData(in, delimiter, hasHeaders, new LoadOptions(), handler);
+    }
+
+    /**
+     * Streams quoted, delimited rows from a Reader to a RowHandler, one row at
+     * a time, passing only the columns and rows selected by the options. The
+     * Reader is not closed.
+     *
+     * @param in Reader to parse data from
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     * @throws IOException If the Reader cannot be read
+     */
+    public static long streamQuotedData(Reader in, String delimiter, boolean hasHeaders, LoadOptions options,
+            RowHandler handler) throws IOException {
+        return parseQuotedData(toBufferedReader(in), delimiter, hasHeaders, options, handler);
+    }
+
+    /**
+     * Streams fixed-width rows from a Reader to a RowHandler, one row at a
+     * time. The Reader is not closed.
+     *
+     * @param in Reader to parse data from
+     * @param dataMap An array of ints that specify the width of each column
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     * @throws IOException If the Reader cannot be read
+     */
+    public static long streamFixedWidth(Reader in, int[] dataMap, boolean hasHeaders, RowHandler handler)
+            throws IOException {
+        return streamFixedWidth(in, dataMap, hasHeaders, new LoadOptions(), handler);
+    }
+
+    /**
+     * Streams fixed-width rows from a Reader to a RowHandler, one row at a
+     * time, passing only the columns and rows selected by the options. The
+     * Reader is not closed.
+     *
+     * @param in Reader to parse data from
+     * @param dataMap An array of ints that specify the width of each column
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     * @throws IOException If the Reader cannot be read
+     */
+    public static long streamFixedWidth(Reader in, int[] dataMap, boolean hasHeaders, LoadOptions options,
+            RowHandler handler) throws IOException {
+        return parseFixedWidth(toBufferedReader(in), dataMap, hasHeaders, options, handler);
+    }
+
+    /**
+     * Returns LoadOptions that only convert fields with a schema.
+     */
+    private static LoadOptions options(ColumnSchema schema) {
+        LoadOptions output = new LoadOptions();
+        output.setSchema(schema);
+
+        return output;
+    }
+
+    /**
+     * Returns the numbers of the columns selected by the options, reading
+     * column names from the header row of the input if necessary. The reader
+     * is reset to where it was, so the header is still there to be skipped.
+     *
+     * @param options LoadOptions selecting columns
+     * @param hasHeaders Whether or not the input dataset has headers
+     * @param f BufferedReader positioned at the header row
+     * @param delimiter The delimiter that separates fields, or null for
+     * fixed-width data
+     * @param dataMap Widths of the columns of fixed-width data, or null
+     * @param quoted Whether or not fields are quoted
+     * @return int[] Column numbers, or null to load all columns
+     * @exception IllegalArgumentException If a column name is not in the header
+     * row, or the input has no headers
+     */
+    private static int[] getColumns(LoadOptions options, boolean hasHeaders, BufferedReader f, String delimiter,
+            int[] dataMap, boolean quoted) throws IOException, IllegalArgumentException {
+
+        String[] names = options.getColumnNames();
+        if (names == null) {
+            return options.getColumns();
+        }
+        if (!hasHeaders) {
+            throw new IllegalArgumentException("Columns can only be selected by name when the data has headers");
+        }
+
+        List header;
+
+        f.mark(HEADER_READ_LIMIT);
+        try {
+            if (quoted) {
+                header = new QuotedDataReader(f, delimiter).readRecord();
+            } else {
+                String line = f.readLine();
+                if (line == null) {
+                    header = null;
+                } else if (dataMap != null) {
+                    header = splitFixedWidth(line, dataMap);
+                } else {
+                    header = splitLine(line, delimiter);
+                }
+            }
+        } finally {
+            f.reset();
+        }
+
+        if (header == null) {
+            //empty input: there are no rows to project
+            return null;
+        }
+
+        int[] output = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            output[i] = -1;
+
+            for (int col = 0; col < header.size(); col++) {
+                String name = (String) header.get(col);
+                if (name != null && name.trim().equalsIgnoreCase(names[i].trim())) {
+                    output[i] = col;
+                    break;
+                }
+            }
+
+            if (output[i] < 0) {
+                throw new IllegalArgumentException("Column '" + names[i] + "' not found in header row");
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns the numbers of the columns selected by the options, reading
+     * column names from the header row of the file if necessary.
+     */
+    private static int[] getColumns(LoadOptions options, boolean hasHeaders, String dataFile, String delimiter,
+            int[] dataMap) throws IOException, IllegalArgumentException {
+
+        if (options.getColumnNames() == null) {
+            return options.getColumns();
+        }
+
+        BufferedReader f = openReader(dataFile);
+        try {
+            return getColumns(options, hasHeaders, f, delimiter, dataMap, false);
+        } finally {
+            close(f);
+        }
+    }
+
+    /**
+     * Returns a RecordHandler that applies the filter, column selection and
+     * schema of the options to each record before passing it to a RowHandler.
+     *
+     * @param options LoadOptions selecting columns and rows
+     * @param columns Column numbers to keep, or null for all columns
+     * @param schema ColumnSchema to convert fields with, or null
+     * @param metrics IngestMetrics to count conversion errors in
+     * @param handler RowHandler to receive each selected row
+     */
+    private static RecordHandler toRecordHandler(LoadOptions options, int[] columns, ColumnSchema schema,
+            IngestMetrics metrics, RowHandler handler) {
+
+        RowHandler output = withSchema(schema, metrics, withStringPool(options, handler));
+
+        if (options.getRowFilter() == null && columns == null) {
+            return new RowHandlerAdapter(output);
+        }
+
+        return new SelectingHandler(options.getRowFilter(), columns, output);
+    }
+
+    /**
+     * Returns a RowHandler that applies the filter, column selection and schema
+     * of the options to each row before passing it on.
+     *
+     * @param options LoadOptions selecting columns and rows
+     * @param columns Column numbers to keep, or null for all columns
+     * @param metrics IngestMetrics to count conversion errors in
+     * @param handler RowHandler to receive each selected row
+     */
+    private static RowHandler toRowHandler(LoadOptions options, int[] columns, IngestMetrics metrics, RowHandler handler) {
+
+        RowHandler output = withSchema(options.getSchema(), metrics, withStringPool(options, handler));
+
+        if (options.getRowFilter() == null && columns == null) {
+            return output;
+        }
+
+        return new SelectingHandler(options.getRowFilter(), columns, output);
+    }
+
+    /**
+     * Helper method that does the actual parsing for loadDataFromX methods.
+     *
+     * @param f BufferedReader to construct the ObjectFlatFile from
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    private static ObjectFlatFile parseData(BufferedReader f, String delimiter, boolean hasHeaders, LoadOptions options) {
+
+        ObjectFlatFile parsedData = new ObjectFlatFile();
+
+        try {
+            parseData(f, delimiter, hasHeaders, options, new FlatFileRowHandler(parsedData));
+
+        } catch (Exception e) {
+            log.debug("loadDataFromFile: Exception", e);
+        }
+
+        return parsedData;
+
+    }
+
+    /**
+     * Helper method that parses delimited data, passing the columns and rows
+     * selected by the options to a RowHandler.
+     *
+     * @return long The number of rows passed to the handler
+     */
+    private static long parseData(BufferedReader f, String delimiter, boolean hasHeaders, LoadOptions options,
+            RowHandler handler) throws IOException {
+
+        int[] columns = getColumns(options, hasHeaders, f, delimiter, null, false);
+
+        IngestMetrics metrics = newMetrics(options);
+        CountingRowHandler counter = new CountingRowHandler(handler);
+        try {
+            parseData(f, delimiter, hasHeaders, toRowHandler(options, columns, metrics, counter), new ProgressCounter(metrics));
+        } finally {
+            metrics.finish();
+        }
+
+        return counter.getNumRows();
+    }
+
+    /**
+     * Helper method that does the actual parsing of delimited data, passing
+     * each row to a RowHandler as soon as it is read.
+     *
+     * @param f BufferedReader to read data from
+     * @param delimiter The delimiter to use when parsing the data
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param handler RowHandler to receive each parsed row
+     * @param progress ProgressCounter to count each line in
+     * @return long The number of rows passed to the handler
+     */
+    private static long parseData(BufferedReader f, String delimiter, boolean hasHeaders, RowHandler handler,
+            ProgressCounter progress) throws IOException {
+
+        long numRows = 0;
+
+        String line;
+
+        if (hasHeaders) {
+            f.readLine();   //skip header row
+        }
+        while ((line = f.readLine()) != null) {
+            //read lines from the data file
+            progress.row(line.length() + 1);
+
+            handler.handleRow(splitLine(line, delimiter));
+            numRows++;
+        }
+
+        progress.flush();
+
+        return numRows;
+
+    }
+
+    /**
+     * Splits a line of delimited data into a List of Strings.
+     */
+    private static List splitLine(String line, String delimiter) {
+
+        //first clean the line
+        String lineCleaned = cleanString(line);
+
+        StringChopper st = new StringChopper(lineCleaned, delimiter);
+
+        List lineValues = new ArrayList();
+
+        while (st.hasMoreTokens()) {
+            String element = (String) st.nextElement();
+
+            if (element == null) {
+                element = "";
+            }
+
+            lineValues.add(element);
+        }
+
+        return lineValues;
+    }
+
+    /**
+     * Wraps a RowHandler so that each row is converted by a ColumnSchema before
+     * it is handled. Returns the handler itself if the schema is null.
+     */
+    private static RowHandler withSchema(ColumnSchema schema, IngestMetrics metrics, RowHandler handler) {
+        if (schema == null) {
+            return handler;
+        }
+
+        return new SchemaRowHandler(schema, metrics, handler);
+    }
+
+    /**
+     * Wraps a RowHandler so that the String fields of each row are passed
+     * through the StringPool of the options. Returns the handler itself if
+     * there is no pool.
+     */
+    private static RowHandler withStringPool(LoadOptions options, RowHandler handler) {
+        if (options.getStringPool() == null) {
+            return handler;
+        }
+
+        return new StringPoolRowHandler(options.getStringPool(), options.getPooledColumns(), handler);
+    }
+
+    /**
+     * Creates the IngestMetrics for a load, reporting to the listener in the
+     * options.
+     */
+    private static IngestMetrics newMetrics(LoadOptions options) {
+        return new IngestMetrics(options.getIngestListener(), options.getProgressInterval());
+    }
+
+    /**
+     * Returns true if a file can be parsed by the memory-mapped, byte-level
+     * parser: it is not compressed, and files in the platform default Charset
+     * can be scanned at the byte level.
+     */
+    private static boolean isMappable(String dataFile) {
+        if (!MappedLineScanner.isSupported(Charset.defaultCharset())) {
+            return false;
+        }
+
+        try {
+            return !isCompressed(dataFile);
+        } catch (IOException ioe) {
+            //let the parser report the error
+            return true;
+        }
+    }
+
+    /**
+     * Helper method that parses a delimited file by memory-mapping it and
+     * scanning the bytes directly, passing each row to a RowHandler. Produces
+     * the same rows as parseData, without reading each line into a String
+     * first. The row filter is evaluated against the mapped record, so only
+     * the fields of selected rows and columns are ever decoded.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param delimiter The delimiter to use when parsing the data
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     */
+    private static long parseMappedData(String dataFile, String delimiter, boolean hasHeaders, LoadOptions options,
+            RowHandler handler) throws IOException {
+
+        int[] columns = getColumns(options, hasHeaders, dataFile, delimiter, null);
+
+        MappedDelimitedParser parser = new MappedDelimitedParser(delimiter);
+
+        return parseMapped(parser, dataFile, hasHeaders, options, columns, handler);
+    }
+
+    /**
+     * Helper method that parses a fixed-width file by memory-mapping it,
+     * passing each row to a RowHandler. Columns are located by byte offset, and
+     * only the fields of selected rows and columns are decoded.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param dataMap An array of ints that specify the width of each column
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     */
+    private static long parseMappedFixedWidth(String dataFile, int[] dataMap, boolean hasHeaders, LoadOptions options,
+            RowHandler handler) throws IOException {
+
+        int[] columns = getColumns(options, hasHeaders, dataFile, null, dataMap);
+
+        MappedFixedWidthParser parser = new MappedFixedWidthParser(dataMap);
+
+        return parseMapped(parser, dataFile, hasHeaders, options, columns, handler);
+    }
+
+    /**
+     * Helper method that runs a memory-mapped scanner over a whole file,
+     * applying the options and reporting progress.
+     *
+     * @return long The number of rows passed to the handler
+     */
+    private static long parseMapped(MappedLineScanner scanner, String dataFile, boolean hasHeaders, LoadOptions options,
+            int[] columns, RowHandler handler) throws IOException {
+
+        IngestMetrics metrics = newMetrics(options);
+        CountingRowHandler counter = new CountingRowHandler(handler);
+        try {
+            RecordHandler selected = toRecordHandler(options, columns, options.getSchema(), metrics, counter);
+            ProgressRecordHandler progress = new ProgressRecordHandler(scanner, 0, new ProgressCounter(metrics), selected);
+
+            scanner.parseRecords(new File(dataFile), hasHeaders, progress);
+            progress.flush();
+        } finally {
+            metrics.finish();
+        }
+
+        return counter.getNumRows();
+    }
 
-        String line;
-        String lineCleaned;
+    /**
+     * Helper method that splits a file into line-aligned chunks, parses each
+     * chunk on a ForkJoinPool with its own scanner, and stitches the rows back
+     * together in their original order.
+     *
+     * @param dataFile The filename/path of the input file
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @param columns Column numbers to keep, or null for all columns
+     * @param pool ForkJoinPool to parse chunks on
+     * @param factory Creates a scanner for each chunk
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    private static ObjectFlatFile parseMappedParallel(String dataFile, boolean hasHeaders, LoadOptions options,
+            int[] columns, ForkJoinPool pool, ScannerFactory factory) throws Exception {
 
-        StringChopper st;
+        try (RandomAccessFile raf = new RandomAccessFile(dataFile, "r");
+                FileChannel channel = raf.getChannel()) {
 
-        List lineValues;
+            long maxChunks = Math.max(1, channel.size() / MIN_CHUNK_SIZE);
+            int numChunks = (int) Math.min(maxChunks, (long) pool.getParallelism() * CHUNKS_PER_THREAD);
+
+            long[] bounds = MappedLineScanner.splitLines(channel, numChunks);
+            log.debug("parsing " + dataFile + " in " + (bounds.length - 1) + " chunks");
+
+            IngestMetrics metrics = newMetrics(options);
+
+            List<Callable<List>> tasks = new ArrayList<>(bounds.length - 1);
+            for (int k = 0; k < bounds.length - 1; k++) {
+                tasks.add(new ChunkTask(factory.newScanner(), channel, bounds[k], bounds[k + 1], hasHeaders && k == 0,
+                        options, columns, metrics));
+            }
+
+            List<Future<List>> results;
+            try {
+                results = pool.invokeAll(tasks);
+            } finally {
+                metrics.finish();
+            }
+
+            int totalRows = 0;
+            List[] chunks = new List[results.size()];
+            for (int k = 0; k < chunks.length; k++) {
+                chunks[k] = results.get(k).get();
+                totalRows += chunks[k].size();
+            }
+
+            ObjectFlatFile parsedData = new ObjectFlatFile(totalRows);
+            for (int k = 0; k < chunks.length; k++) {
+                for (Object row : chunks[k]) {
+                    parsedData.addRow((List) row);
+                }
+                chunks[k] = null;
+            }
+
+            return parsedData;
+        }
+    }
+
+    /**
+     * Helper method that does the actual parsing for loadFixedWidthX methods.
+     *
+     * @param f BufferedReader to construct the ObjectFlatFile from
+     * @param dataMap An array of ints that specify the width of each column
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    private static ObjectFlatFile parseFixedWidth(BufferedReader f, int[] dataMap, boolean hasHeaders, LoadOptions options) {
+
+        ObjectFlatFile parsedData = new ObjectFlatFile();
 
         try {
-            String element;
+            parseFixedWidth(f, dataMap, hasHeaders, options, new FlatFileRowHandler(parsedData));
+
+        } catch (Exception e) {
+            log.debug("loadDataFromFile: Exception", e);
+        }
 
-            System.out.print("loading data from file ");
+        return parsedData;
 
-            if (hasHeaders) {
-                f.readLine();   //skip header row
+    }
+
+    /**
+     * Helper method that parses fixed-width data, passing the columns and rows
+     * selected by the options to a RowHandler. Without a row filter, columns
+     * that are not selected are never cut out of the line.
+     *
+     * @return long The number of rows passed to the handler
+     */
+    private static long parseFixedWidth(BufferedReader f, int[] dataMap, boolean hasHeaders, LoadOptions options,
+            RowHandler handler) throws IOException {
+
+        int[] columns = getColumns(options, hasHeaders, f, null, dataMap, false);
+
+        IngestMetrics metrics = newMetrics(options);
+        CountingRowHandler counter = new CountingRowHandler(handler);
+        try {
+            if (options.getRowFilter() == null) {
+                parseFixedWidth(f, dataMap, columns, hasHeaders, withSchema(options.getSchema(), metrics, withStringPool(options, counter)),
+                        new ProgressCounter(metrics));
+            } else {
+                parseFixedWidth(f, dataMap, null, hasHeaders, toRowHandler(options, columns, metrics, counter),
+                        new ProgressCounter(metrics));
+            }
+        } finally {
+            metrics.finish();
+        }
+
+        return counter.getNumRows();
+    }
+
+    /**
+     * Helper method that does the actual parsing of fixed-width data, passing
+     * each row to a RowHandler as soon as it is read.
+     *
+     * @param f BufferedReader to read data from
+     * @param dataMap An array of ints that specify the width of each column
+     * @param columns zero-based numbers of the columns to parse, or null for
+     * all columns
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param handler RowHandler to receive each parsed row
+     * @param progress ProgressCounter to count each line in
+     * @return long The number of rows passed to the handler
+     */
+    private static long parseFixedWidth(BufferedReader f, int[] dataMap, int[] columns, boolean hasHeaders, RowHandler handler,
+            ProgressCounter progress) throws IOException {
+
+        long numRows = 0;
+
+        //starting offset of each column
+        int[] offsets = new int[dataMap.length];
+        for (int i = 1; i < dataMap.length; i++) {
+            offsets[i] = offsets[i - 1] + dataMap[i - 1];
+        }
+
+        if (columns == null) {
+            columns = new int[dataMap.length];
+            for (int i = 0; i < dataMap.length; i++) {
+                columns[i] = i;
             }
-            while ((line = f.readLine()) != null) {
-                //read lines from the data file
-                System.out.print(".");
+        }
+
+        String line;
+
+        List lineValues;
+
+        String element;
+
+        if (hasHeaders) {
+            f.readLine();   //skip header row
+        }
+        while ((line = f.readLine()) != null) {
+            //read lines from the data file
+            progress.row(line.length() + 1);
 
-                //first clean the line
-                lineCleaned = cleanQuotedString(line, delimiter);
+            lineValues = new ArrayList(columns.length);
 
-                st = new StringChopper(lineCleaned, "|");
+            for (int column : columns) {
+                int lineIndex = offsets[column];
+                int colWidth = dataMap[column];
 
-                lineValues = new ArrayList();
+                element = line.substring(Math.min(lineIndex, line.length()), Math.min((lineIndex + colWidth), line.length()));
 
-                while (st.hasMoreTokens()) {
-                    element = (String) st.nextElement();
-                    lineValues.add(element);
-                    //System.out.print(element + "|");
+                if (log.isDebugEnabled()) {
+                    log.debug("ELEMENT FROM: " + lineIndex + " TO: " + (lineIndex + colWidth) + " IS: " + element);
                 }
-                //System.out.println("");
-                parsedData.addRow(lineValues);
-                //System.out.println("loadDataFromFile: new row added to loadedData");
+
+                lineValues.add(element);
             }
 
-            System.out.println("");
+            handler.handleRow(lineValues);
+            numRows++;
+        }
+
+        progress.flush();
+
+        return numRows;
+
+    }
+
+    /**
+     * Splits a line of fixed-width data into a List of Strings.
+     */
+    private static List splitFixedWidth(String line, int[] dataMap) {
+        List lineValues = new ArrayList(dataMap.length);
+
+        int lineIndex = 0;
+        for (int colWidth : dataMap) {
+            lineValues.add(line.substring(Math.min(lineIndex, line.length()), Math.min((lineIndex + colWidth), line.length())));
+            lineIndex += colWidth;
+        }
+
+        return lineValues;
+    }
+
+    /**
+     * Helper method that does the actual parsing of quoted strings for
+     * loadDataFromX methods.
+     *
+     * @param f BufferedReader to construct the ObjectFlatFile from
+     * @param delimiter The delimiter to use when parsing the data. This should
+     * be a single character such as "," or "\t"
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first line of the dataset will be skipped
+     * @param options LoadOptions selecting columns and rows
+     * @return ObjectFlatFile ObjectFlatFile data structure constructed from
+     * input data
+     */
+    private static ObjectFlatFile parseQuotedData(BufferedReader f, String delimiter, boolean hasHeaders, LoadOptions options) {
+
+        ObjectFlatFile parsedData = new ObjectFlatFile();
+
+        try {
+            parseQuotedData(f, delimiter, hasHeaders, options, new FlatFileRowHandler(parsedData));
 
         } catch (Exception e) {
             log.debug("loadDataFromFile: Exception", e);
@@ -344,6 +1561,70 @@ public class DataLoader {
 
     }
 
+    /**
+     * Helper method that parses quoted data, passing the columns and rows
+     * selected by the options to a RowHandler.
+     *
+     * @return long The number of rows passed to the handler
+     */
+    private static long parseQuotedData(BufferedReader f, String delimiter, boolean hasHeaders, LoadOptions options,
+            RowHandler handler) throws IOException {
+
+        int[] columns = getColumns(options, hasHeaders, f, delimiter, null, true);
+
+        IngestMetrics metrics = newMetrics(options);
+        CountingRowHandler counter = new CountingRowHandler(handler);
+        try {
+            parseQuotedData(f, delimiter, hasHeaders, toRowHandler(options, columns, metrics, counter), new ProgressCounter(metrics));
+        } finally {
+            metrics.finish();
+        }
+
+        return counter.getNumRows();
+    }
+
+    /**
+     * Helper method that does the actual parsing of quoted data, passing each
+     * row to a RowHandler as soon as it is read. Quoted fields may contain
+     * delimiters, escaped quotes ("") and line breaks.
+     *
+     * @param f BufferedReader to read data from
+     * @param delimiter The delimiter to use when parsing the data
+     * @param hasHeaders Whether or not the input dataset has headers. If true,
+     * the first record of the dataset will be skipped
+     * @param handler RowHandler to receive each parsed row
+     * @param progress ProgressCounter to count each record in
+     * @return long The number of rows passed to the handler
+     */
+    private static long parseQuotedData(BufferedReader f, String delimiter, boolean hasHeaders, RowHandler handler,
+            ProgressCounter progress) throws IOException {
+
+        long numRows = 0;
+
+        QuotedDataReader reader = new QuotedDataReader(f, delimiter);
+
+        List lineValues;
+
+        if (hasHeaders) {
+            reader.readRecord();   //skip header row
+        }
+        long charsRead = reader.getCharsRead();
+
+        while ((lineValues = reader.readRecord()) != null) {
+            //read records from the data file
+            progress.row(reader.getCharsRead() - charsRead);
+            charsRead = reader.getCharsRead();
+
+            handler.handleRow(lineValues);
+            numRows++;
+        }
+
+        progress.flush();
+
+        return numRows;
+
+    }
+
     /**
      * Performs data cleanup, especially when importing from Excel tab-delimited
      * text files
@@ -369,34 +1650,315 @@ public class DataLoader {
     }
 
     /**
-     * Performs data cleanup on quoted strings, especially when importing from
-     * Excel tab-delimited text files
-     *
-     * @param valueIn The String to clean
-     * @return String Input String with excess double quotes and double tabs
-     * removed
+     * RowHandler that collects rows into an ObjectFlatFile.
      */
-    private static String cleanQuotedString(String valueIn, String delimiter) {
+    private static class FlatFileRowHandler implements RowHandler {
 
-        if (valueIn == null) {
-            return "";
+        private final ObjectFlatFile flatFile;
+
+        FlatFileRowHandler(ObjectFlatFile flatFile) {
+            this.flatFile = flatFile;
         }
 
-        String value = valueIn;
+        @Override
+        public void handleRow(List row) {
+            flatFile.addRow(row);
+        }
+    }
 
-        StringUtils.replace(value, "\t\"", "\t");     //replace: <tab>"      with: <tab>
-        StringUtils.replace(value, "\"\t", "\t");     //replace: "<tab>      with: <tab>
-        StringUtils.replace(value, "\"\r", "\r");     //replace: "<linefeed> with: <linefeed>
-        StringUtils.replace(value, "\t\t", "\t \t");  //replace: <tab><tab>  with: <tab> <tab>
+    /**
+     * RowHandler that converts the fields of each row to typed values before
+     * passing it on.
+     */
+    private static class SchemaRowHandler implements RowHandler {
 
-        StringUtils.replace(value, "\"" + delimiter + "\"", "|");   // replace: "<delimiter>" with |
-        StringUtils.replace(value, "||", "| |", true);              // replace: || with | | (recursive)
-        StringUtils.replace(value, "\"", "");                       // eliminate excess "s
+        private final ColumnSchema schema;
+        private final IngestMetrics metrics;
+        private final RowHandler handler;
 
-        log.debug("CLEANED: " + value);
+        SchemaRowHandler(ColumnSchema schema, IngestMetrics metrics, RowHandler handler) {
+            this.schema = schema;
+            this.metrics = metrics;
+            this.handler = handler;
+        }
 
-        return value;
+        @Override
+        public void handleRow(List row) {
+            int errors = schema.convertRow(row);
+            if (errors > 0) {
+                metrics.addErrors(errors);
+            }
+            handler.handleRow(row);
+        }
+    }
+
+    /**
+     * RowHandler that replaces String fields with their pooled instances
+     * before passing each row on.
+     */
+    private static class StringPoolRowHandler implements RowHandler {
+
+        private final StringPool pool;
+        private final int[] columns;
+        private final RowHandler handler;
+
+        StringPoolRowHandler(StringPool pool, int[] columns, RowHandler handler) {
+            this.pool = pool;
+            this.columns = columns;
+            this.handler = handler;
+        }
+
+        @Override
+        public void handleRow(List row) {
+            if (columns == null) {
+                for (int i = 0; i < row.size(); i++) {
+                    intern(row, i);
+                }
+            } else {
+                for (int column : columns) {
+                    if (column >= 0 && column < row.size()) {
+                        intern(row, column);
+                    }
+                }
+            }
+
+            handler.handleRow(row);
+        }
+
+        private void intern(List row, int column) {
+            Object value = row.get(column);
+            if (value instanceof String) {
+                row.set(column, pool.intern((String) value));
+            }
+        }
+    }
+
+    /**
+     * RowHandler that counts the rows it passes on.
+     */
+    private static class CountingRowHandler implements RowHandler {
+
+        private final RowHandler handler;
+        private long numRows = 0;
+
+        CountingRowHandler(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void handleRow(List row) {
+            handler.handleRow(row);
+            numRows++;
+        }
+
+        long getNumRows() {
+            return numRows;
+        }
+    }
+
+    /**
+     * Counts rows and bytes for one thread, adding them to the shared
+     * IngestMetrics in batches.
+     */
+    private static class ProgressCounter {
+
+        private final IngestMetrics metrics;
+        private int numRows = 0;
+        private long numBytes = 0;
+
+        ProgressCounter(IngestMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        void row(long bytes) {
+            numBytes += bytes;
+            if (++numRows >= PROGRESS_BATCH_ROWS) {
+                flush();
+            }
+        }
+
+        void flush() {
+            metrics.add(numRows, numBytes);
+            numRows = 0;
+            numBytes = 0;
+        }
+    }
 
+    /**
+     * Counts each record scanned from a mapped file, and the bytes of the file
+     * it spans, before passing it on.
+     */
+    private static class ProgressRecordHandler implements RecordHandler {
+
+        private final MappedLineScanner scanner;
+        private final ProgressCounter progress;
+        private final RecordHandler handler;
+
+        //file offset of the end of the last record counted
+        private long offset;
+
+        ProgressRecordHandler(MappedLineScanner scanner, long start, ProgressCounter progress, RecordHandler handler) {
+            this.scanner = scanner;
+            this.offset = start;
+            this.progress = progress;
+            this.handler = handler;
+        }
+
+        @Override
+        public void handleRecord(DataRecord record) {
+            long end = scanner.getLineEndOffset();
+            progress.row(end - offset);
+            offset = end;
+
+            handler.handleRecord(record);
+        }
+
+        void flush() {
+            progress.flush();
+        }
+    }
+
+    /**
+     * Applies a RowFilter and column selection to records or rows, passing the
+     * selected columns of accepted rows on as a new List.
+     */
+    private static class SelectingHandler implements RecordHandler, RowHandler {
+
+        private final RowFilter filter;
+        private final int[] columns;
+        private final RowHandler handler;
+
+        private final ListRecord listRecord = new ListRecord();
+
+        SelectingHandler(RowFilter filter, int[] columns, RowHandler handler) {
+            this.filter = filter;
+            this.columns = columns;
+            this.handler = handler;
+        }
+
+        @Override
+        public void handleRecord(DataRecord record) {
+            if (filter != null && !filter.accept(record)) {
+                return;
+            }
+
+            if (columns == null) {
+                handler.handleRow(RowHandlerAdapter.toList(record));
+                return;
+            }
+
+            List row = new ArrayList(columns.length);
+            for (int column : columns) {
+                row.add(record.getField(column));
+            }
+            handler.handleRow(row);
+        }
+
+        @Override
+        public void handleRow(List row) {
+            listRecord.row = row;
+
+            if (filter != null && !filter.accept(listRecord)) {
+                return;
+            }
+
+            if (columns == null) {
+                handler.handleRow(row);
+                return;
+            }
+
+            List selected = new ArrayList(columns.length);
+            for (int column : columns) {
+                selected.add(listRecord.getField(column));
+            }
+            handler.handleRow(selected);
+        }
+    }
+
+    /**
+     * DataRecord view of a parsed row, so row filters can be applied to rows
+     * from the Reader-based parsers.
+     */
+    private static class ListRecord implements DataRecord {
+
+        private List row;
+
+        @Override
+        public int getFieldCount() {
+            return row.size();
+        }
+
+        @Override
+        public String getField(int index) {
+            if (index < 0 || index >= row.size()) {
+                return "";
+            }
+
+            Object value = row.get(index);
+            return (value == null) ? "" : value.toString();
+        }
+
+        @Override
+        public CharSequence getCharSequence(int index) {
+            return getField(index);
+        }
+    }
+
+    /**
+     * Creates a new scanner for each chunk of a parallel load, since scanners
+     * are not thread-safe.
+     */
+    private interface ScannerFactory {
+
+        MappedLineScanner newScanner();
+    }
+
+    /**
+     * Parses one line-aligned byte range of a file into a List of rows.
+     */
+    private static class ChunkTask implements Callable<List> {
+
+        private final MappedLineScanner scanner;
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final boolean skipFirstLine;
+        private final LoadOptions options;
+        private final int[] columns;
+        private final IngestMetrics metrics;
+
+        ChunkTask(MappedLineScanner scanner, FileChannel channel, long start, long end, boolean skipFirstLine,
+                LoadOptions options, int[] columns, IngestMetrics metrics) {
+            this.scanner = scanner;
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.skipFirstLine = skipFirstLine;
+            this.options = options;
+            this.columns = columns;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public List call() throws IOException {
+            final List rows = new ArrayList();
+
+            //each chunk needs its own schema, since DateFormat is not thread-safe
+            ColumnSchema schema = (options.getSchema() == null) ? null : options.getSchema().copy();
+
+            RecordHandler selected = toRecordHandler(options, columns, schema, metrics, new RowHandler() {
+                @Override
+                public void handleRow(List row) {
+                    rows.add(row);
+                }
+            });
+            ProgressRecordHandler progress = new ProgressRecordHandler(scanner, start, new ProgressCounter(metrics), selected);
+
+            scanner.parseRecords(channel, start, end, skipFirstLine, progress);
+            progress.flush();
+
+            return rows;
+        }
     }
 
 }
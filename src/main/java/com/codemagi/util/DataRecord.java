@@ -0,0 +1,52 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+/**
+ * A read-only view of a single parsed record whose field values are only
+ * materialized when they are requested. Records passed to a RecordHandler are
+ * usually reused by the parser, and are only valid for the duration of the
+ * callback.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public interface DataRecord {
+
+    /**
+     * Returns the number of fields in this record.
+     */
+    public int getFieldCount();
+
+    /**
+     * Returns the value of a field as a String, or "" if the field does not
+     * exist.
+     *
+     * @param index zero-based field number
+     */
+    public String getField(int index);
+
+    /**
+     * Returns the value of a field as a CharSequence, or "" if the field does
+     * not exist. Implementations may return a view of the underlying buffer
+     * instead of copying the field into a String, so the value is only valid
+     * for the duration of the callback: call toString() to keep it.
+     *
+     * @param index zero-based field number
+     */
+    public CharSequence getCharSequence(int index);
+
+}
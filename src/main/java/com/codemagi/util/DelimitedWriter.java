@@ -0,0 +1,263 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Writes rows of delimited text to a Writer or OutputStream. Fields are
+ * collected in a large reusable char buffer that is written out in bulk, so
+ * the cost of the underlying stream is paid once per buffer rather than once
+ * per field.
+ * <P>
+ * DelimitedWriter is also a RowHandler, so rows can be streamed straight from
+ * DataLoader to output. Instances are not thread-safe.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class DelimitedWriter implements RowHandler, Closeable, Flushable {
+
+    //size of the output buffer, in chars
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final char QUOTE = '"';
+
+    private final Writer out;
+    private final String delimiter;
+
+    private final char[] buf = new char[BUFFER_SIZE];
+    private int count = 0;
+
+    private QuotePolicy quotePolicy = QuotePolicy.MINIMAL;
+    private String lineSeparator = System.getProperty("line.separator");
+    private String nullValue = "";
+
+    //true if no field has been written on the current row
+    private boolean rowStart = true;
+    private long numRows = 0;
+
+    /**
+     * Constructs a writer that writes to a Writer.
+     *
+     * @param out Writer to write to
+     * @param delimiter The delimiter to separate fields, such as "," or "\t"
+     */
+    public DelimitedWriter(Writer out, String delimiter) {
+        this.out = out;
+        this.delimiter = (delimiter == null) ? "" : delimiter;
+    }
+
+    /**
+     * Constructs a writer that encodes its output to an OutputStream.
+     *
+     * @param out OutputStream to write to
+     * @param charset The Charset to encode output with
+     * @param delimiter The delimiter to separate fields, such as "," or "\t"
+     */
+    public DelimitedWriter(OutputStream out, Charset charset, String delimiter) {
+        this(new OutputStreamWriter(new BufferedOutputStream(out, BUFFER_SIZE), charset), delimiter);
+    }
+
+    /**
+     * Sets which fields are enclosed in quotes. The default is MINIMAL.
+     */
+    public void setQuotePolicy(QuotePolicy newValue) {
+        quotePolicy = (newValue == null) ? QuotePolicy.NONE : newValue;
+    }
+
+    /**
+     * Sets the line separator written at the end of each row. The default is
+     * the platform line separator.
+     */
+    public void setLineSeparator(String newValue) {
+        lineSeparator = (newValue == null) ? "" : newValue;
+    }
+
+    /**
+     * Sets the text written for null fields. The default is "".
+     */
+    public void setNullValue(String newValue) {
+        nullValue = (newValue == null) ? "" : newValue;
+    }
+
+    /**
+     * Returns the number of rows written so far.
+     */
+    public long getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * Writes one row.
+     *
+     * @param row List of field values
+     * @throws IOException If the output cannot be written
+     */
+    public void writeRow(List row) throws IOException {
+        for (Object value : row) {
+            writeField(value);
+        }
+        endRow();
+    }
+
+    /**
+     * Writes one row.
+     *
+     * @param row Array of field values
+     * @throws IOException If the output cannot be written
+     */
+    public void writeRow(Object[] row) throws IOException {
+        for (Object value : row) {
+            writeField(value);
+        }
+        endRow();
+    }
+
+    /**
+     * Writes a row to the output. Since RowHandler cannot throw checked
+     * exceptions, IOExceptions are rethrown as UncheckedIOExceptions.
+     */
+    @Override
+    public void handleRow(List row) {
+        try {
+            writeRow(row);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /**
+     * Writes the next field of the current row, preceded by the delimiter if
+     * it is not the first.
+     *
+     * @param value The field value. Its toString() is written, or the null
+     * value if it is null.
+     * @throws IOException If the output cannot be written
+     */
+    public void writeField(Object value) throws IOException {
+        if (!rowStart) {
+            append(delimiter);
+        }
+        rowStart = false;
+
+        String field = (value == null) ? nullValue : value.toString();
+
+        if (quotePolicy == QuotePolicy.ALL || (quotePolicy == QuotePolicy.MINIMAL && needsQuotes(field))) {
+            appendQuoted(field);
+        } else {
+            append(field);
+        }
+    }
+
+    /**
+     * Ends the current row.
+     *
+     * @throws IOException If the output cannot be written
+     */
+    public void endRow() throws IOException {
+        append(lineSeparator);
+        rowStart = true;
+        numRows++;
+    }
+
+    /**
+     * Writes the buffer and flushes the underlying output.
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Writes the buffer and closes the underlying output.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Returns true if a field contains the delimiter, a quote or a line break.
+     */
+    private boolean needsQuotes(String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == QUOTE || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+
+        return delimiter.length() > 0 && field.contains(delimiter);
+    }
+
+    /**
+     * Appends a field enclosed in quotes, doubling any quotes inside it.
+     */
+    private void appendQuoted(String field) throws IOException {
+        append(QUOTE);
+
+        int start = 0;
+        int quote;
+        while ((quote = field.indexOf(QUOTE, start)) >= 0) {
+            append(field, start, quote + 1);
+            append(QUOTE);
+            start = quote + 1;
+        }
+        append(field, start, field.length());
+
+        append(QUOTE);
+    }
+
+    private void append(char c) throws IOException {
+        if (count == buf.length) {
+            flushBuffer();
+        }
+        buf[count++] = c;
+    }
+
+    private void append(String s) throws IOException {
+        append(s, 0, s.length());
+    }
+
+    private void append(String s, int start, int end) throws IOException {
+        while (start < end) {
+            if (count == buf.length) {
+                flushBuffer();
+            }
+
+            int n = Math.min(end - start, buf.length - count);
+            s.getChars(start, start + n, buf, count);
+            count += n;
+            start += n;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+
+}
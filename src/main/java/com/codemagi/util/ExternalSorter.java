@@ -0,0 +1,468 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Sorts more rows than fit in memory. Rows are collected into runs of a fixed
+ * number of rows; each full run is sorted and spilled to a temporary file in
+ * the RowCodec binary format, and the runs are then merged k ways into a
+ * single sorted stream. If all of the rows fit in one run, they are sorted in
+ * memory and nothing is written to disk.
+ * <P>
+ * When a ForkJoinPool is set, runs are sorted and written on the pool while
+ * the next run is being collected, and up to one run per thread may be in
+ * memory at once. The sort is stable.
+ * <P>
+ * ExternalSorter is a RowHandler, so rows can be streamed into it straight
+ * from DataLoader:
+ * <pre>
+ * ExternalSorter sorter = new ExternalSorter(new ColumnComparator(new int[]{2, 0}));
+ * DataLoader.streamDataFromFile("big.csv", ",", true, sorter);
+ * sorter.sort(new DelimitedWriter(out, StandardCharsets.UTF_8, ","));
+ * </pre>
+ * Values in the rows must be null or Serializable, so that spilled rows are
+ * read back with the same types and compare the same way as before they were
+ * spilled. Strings, numbers (including Float, Short, Byte, BigDecimal and
+ * BigInteger), Dates, Timestamps and Booleans are spilled compactly by
+ * RowCodec; other Serializable values use Java serialization. Rows holding
+ * other values are rejected by add.
+ * <P>
+ * Instances are single-use and not thread-safe.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class ExternalSorter implements RowHandler, Closeable {
+
+    static Logger log = LogManager.getLogger("com.codemagi.util.ExternalSorter");
+
+    /**
+     * Default number of rows in each run.
+     */
+    public static final int DEFAULT_RUN_SIZE = 100000;
+
+    //largest number of runs merged at once
+    private static final int MAX_MERGE_WIDTH = 64;
+
+    //size of the buffer for each run file
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    private final Comparator comparator;
+
+    private int runSize = DEFAULT_RUN_SIZE;
+    private File tempDirectory = null;
+    private ForkJoinPool pool = null;
+
+    private List buffer = new ArrayList();
+    private final List<Future<File>> pendingRuns = new ArrayList<>();
+    private final List<File> runs = new ArrayList<>();
+    private long numRows = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param comparator Comparator to order rows (Lists) with
+     */
+    public ExternalSorter(Comparator comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * Constructs a sorter that sorts ascending on key columns.
+     *
+     * @param columns zero-based key column numbers, most significant first
+     */
+    public ExternalSorter(int[] columns) {
+        this(new ColumnComparator(columns));
+    }
+
+    /**
+     * Sets the number of rows in each run. Larger runs mean fewer files to
+     * merge but more memory.
+     */
+    public void setRunSize(int newValue) {
+        runSize = Math.max(1, newValue);
+    }
+
+    /**
+     * Sets the directory for run files. If null, the system temp directory is
+     * used.
+     */
+    public void setTempDirectory(File newValue) {
+        tempDirectory = newValue;
+    }
+
+    /**
+     * Sets the pool to sort and write runs on. If null, runs are sorted on the
+     * calling thread.
+     */
+    public void setPool(ForkJoinPool newValue) {
+        pool = newValue;
+    }
+
+    /**
+     * Returns the number of rows added so far.
+     */
+    public long getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * Adds a row to be sorted. Spills a run to disk when the current run is
+     * full.
+     *
+     * @param row List of values
+     * @throws IOException If a run cannot be written
+     * @throws IllegalArgumentException If the row holds a value that is not
+     * Serializable, and so could not be spilled intact
+     */
+    public void add(List row) throws IOException {
+        for (Object value : row) {
+            if (!RowCodec.isEncodable(value)) {
+                throw new IllegalArgumentException("Cannot sort a value of " + value.getClass() + ": not Serializable");
+            }
+        }
+
+        buffer.add(row);
+        numRows++;
+
+        if (buffer.size() >= runSize) {
+            spill();
+        }
+    }
+
+    /**
+     * Adds a row to be sorted. Since RowHandler cannot throw checked
+     * exceptions, IOExceptions are rethrown as UncheckedIOExceptions.
+     */
+    @Override
+    public void handleRow(List row) {
+        try {
+            add(row);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /**
+     * Adds every row of an ObjectFlatFile to be sorted.
+     *
+     * @param flatFile ObjectFlatFile to sort
+     * @throws IOException If a run cannot be written
+     */
+    public void addAll(ObjectFlatFile flatFile) throws IOException {
+        try {
+            flatFile.forEachRow(this);
+        } catch (UncheckedIOException uioe) {
+            throw uioe.getCause();
+        }
+    }
+
+    /**
+     * Passes every row added, in sorted order, to a RowHandler, and deletes
+     * the run files.
+     *
+     * @param output RowHandler to receive the sorted rows
+     * @return long The number of rows passed to the handler
+     * @throws IOException If the runs cannot be written or read
+     */
+    public long sort(RowHandler output) throws IOException {
+        try {
+            if (runs.isEmpty() && pendingRuns.isEmpty()) {
+                //everything fits in memory
+                buffer.sort(comparator);
+                for (Object row : buffer) {
+                    output.handleRow((List) row);
+                }
+                buffer = new ArrayList();
+
+                return numRows;
+            }
+
+            if (!buffer.isEmpty()) {
+                spill();
+            }
+            while (!pendingRuns.isEmpty()) {
+                collectRun();
+            }
+
+            while (runs.size() > MAX_MERGE_WIDTH) {
+                mergePass();
+            }
+
+            log.debug("merging " + runs.size() + " runs of " + numRows + " rows");
+            merge(runs, output);
+
+            return numRows;
+
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Sorts the rows added into a new ObjectFlatFile. The result must fit in
+     * memory, but the sort itself does not need to hold two copies.
+     *
+     * @return ObjectFlatFile The sorted rows
+     * @throws IOException If the runs cannot be written or read
+     */
+    public ObjectFlatFile sortToFlatFile() throws IOException {
+        final ObjectFlatFile output = new ObjectFlatFile((int) Math.min(numRows, Integer.MAX_VALUE));
+
+        sort(new RowHandler() {
+            @Override
+            public void handleRow(List row) {
+                output.addRow(row);
+            }
+        });
+
+        return output;
+    }
+
+    /**
+     * Deletes any run files and discards any rows not yet sorted.
+     */
+    @Override
+    public void close() {
+        for (Future<File> pending : pendingRuns) {
+            try {
+                delete(pending.get());
+            } catch (Exception e) {
+                log.debug("Error writing run", e);
+            }
+        }
+        pendingRuns.clear();
+
+        for (File run : runs) {
+            delete(run);
+        }
+        runs.clear();
+
+        buffer = new ArrayList();
+    }
+
+    /**
+     * Sorts and writes out the current run, on the pool if there is one.
+     */
+    private void spill() throws IOException {
+        final List run = buffer;
+        buffer = new ArrayList(run.size());
+
+        if (pool == null) {
+            runs.add(writeRun(run));
+            return;
+        }
+
+        pendingRuns.add(pool.submit(() -> writeRun(run)));
+
+        //bound the number of runs held in memory
+        while (pendingRuns.size() > pool.getParallelism()) {
+            collectRun();
+        }
+    }
+
+    /**
+     * Waits for the oldest pending run to be written. Runs are collected in
+     * the order they were created, which keeps the sort stable.
+     */
+    private void collectRun() throws IOException {
+        Future<File> pending = pendingRuns.remove(0);
+
+        try {
+            runs.add(pending.get());
+
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing run");
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Error writing run", cause);
+        }
+    }
+
+    /**
+     * Sorts a run and writes it to a new temp file.
+     */
+    private File writeRun(List rows) throws IOException {
+        rows.sort(comparator);
+
+        File file = File.createTempFile("sort", ".run", tempDirectory);
+        try (DataOutputStream out = openRun(file)) {
+            for (Object row : rows) {
+                RowCodec.writeRow(out, (List) row);
+            }
+        } catch (IOException ioe) {
+            delete(file);
+            throw ioe;
+        }
+
+        return file;
+    }
+
+    /**
+     * Merges groups of MAX_MERGE_WIDTH consecutive runs into single runs.
+     */
+    private void mergePass() throws IOException {
+        List<File> merged = new ArrayList<>();
+
+        for (int i = 0; i < runs.size(); i += MAX_MERGE_WIDTH) {
+            List<File> group = runs.subList(i, Math.min(i + MAX_MERGE_WIDTH, runs.size()));
+
+            File file = File.createTempFile("sort", ".run", tempDirectory);
+            merged.add(file);
+
+            try (final DataOutputStream out = openRun(file)) {
+                merge(group, new RowHandler() {
+                    @Override
+                    public void handleRow(List row) {
+                        try {
+                            RowCodec.writeRow(out, row);
+                        } catch (IOException ioe) {
+                            throw new UncheckedIOException(ioe);
+                        }
+                    }
+                });
+            } catch (IOException | UncheckedIOException e) {
+                for (File f : merged) {
+                    delete(f);
+                }
+                throw (e instanceof UncheckedIOException) ? ((UncheckedIOException) e).getCause() : (IOException) e;
+            }
+
+            for (File run : group) {
+                delete(run);
+            }
+        }
+
+        runs.clear();
+        runs.addAll(merged);
+    }
+
+    /**
+     * Merges sorted run files into a single sorted stream of rows.
+     */
+    private void merge(List<File> inputs, RowHandler output) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, inputs.size()), new Comparator<RunReader>() {
+            @Override
+            public int compare(RunReader r1, RunReader r2) {
+                int output = comparator.compare(r1.row, r2.row);
+
+                //equal rows come out in run order, to keep the sort stable
+                return (output != 0) ? output : Integer.compare(r1.index, r2.index);
+            }
+        });
+
+        List<RunReader> readers = new ArrayList<>(inputs.size());
+        try {
+            for (int i = 0; i < inputs.size(); i++) {
+                RunReader reader = new RunReader(inputs.get(i), i);
+                readers.add(reader);
+
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                output.handleRow(reader.row);
+
+                if (reader.next()) {
+                    queue.add(reader);
+                }
+            }
+
+        } finally {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static DataOutputStream openRun(File file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), IO_BUFFER_SIZE));
+    }
+
+    private static void delete(File file) {
+        if (file != null && !file.delete()) {
+            log.debug("Unable to delete run file " + file);
+        }
+    }
+
+    /**
+     * Reads the rows of one run file in order.
+     */
+    private static class RunReader implements Closeable {
+
+        private final BufferedInputStream buffered;
+        private final DataInputStream in;
+        private final int index;
+
+        //the current row, or null at the end of the run
+        private List row;
+
+        RunReader(File file, int index) throws IOException {
+            this.buffered = new BufferedInputStream(new FileInputStream(file), IO_BUFFER_SIZE);
+            this.in = new DataInputStream(buffered);
+            this.index = index;
+        }
+
+        /**
+         * Reads the next row. Returns false at the end of the run.
+         *
+         * @throws IOException If the run ends part way through a row
+         */
+        boolean next() throws IOException {
+            //the run may only end between rows
+            buffered.mark(1);
+            if (buffered.read() < 0) {
+                row = null;
+                return false;
+            }
+            buffered.reset();
+
+            try {
+                row = RowCodec.readRow(in);
+                return true;
+            } catch (EOFException eof) {
+                throw new IOException("Run " + index + " is truncated", eof);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException ioe) {
+                log.debug("Error closing run", ioe);
+            }
+        }
+    }
+
+}
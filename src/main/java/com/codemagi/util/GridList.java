@@ -15,8 +15,20 @@
  */
 package com.codemagi.util;
 
-import java.io.RandomAccessFile;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.*;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -37,6 +49,15 @@ public class GridList implements java.io.Serializable {
     private ArrayList rows;
     private Map columnNames = new HashMap();
 
+    //column indexes, created on demand. Not serialized.
+    private transient IndexSet indexes;
+
+    //copy-on-write state, set by snapshot(). If sharedRows is true, the list
+    //of rows is shared with a snapshot; if ownedRows is not null, only the
+    //rows whose bits are set may be changed in place. Not serialized.
+    private transient boolean sharedRows = false;
+    private transient BitSet ownedRows;
+
     //options
     private boolean unquote = false;
     private boolean trim = false;
@@ -45,6 +66,9 @@ public class GridList implements java.io.Serializable {
     //constants
     private static final int DEFAULT_ELEMENT_SIZE = 25;
 
+    //largest buffer toString allocates up front; it grows beyond this as needed
+    private static final int MAX_PRESIZE = 1 << 24;
+
     /**
      * null constructor.
      */
@@ -104,12 +128,36 @@ public class GridList implements java.io.Serializable {
      */
     public void setRows(ArrayList newValue) {
         rows = newValue;
+        sharedRows = false;
+        ownedRows = null;
+
+        if (indexes != null) {
+            indexes.rebuild(rows);
+        }
     }
 
     /**
-     * Returns ArrayList of rows
+     * Returns ArrayList of rows. The rows may be changed directly, so if they
+     * are shared with a snapshot they are copied first.
      */
     public ArrayList getRows() {
+        ownRows();
+
+        if (ownedRows != null) {
+            for (int i = ownedRows.nextClearBit(0); i < rows.size(); i = ownedRows.nextClearBit(i + 1)) {
+                ownRow(i);
+            }
+            ownedRows = null;
+        }
+
+        return rows;
+    }
+
+    /**
+     * Returns the rows for reading only. Unlike getRows, never copies rows
+     * shared with a snapshot.
+     */
+    List readRows() {
         return rows;
     }
 
@@ -117,7 +165,7 @@ public class GridList implements java.io.Serializable {
      * Adds a new row (new ArrayList) to the end of the GridList
      */
     private void addRow() {
-        rows.add(new ArrayList());
+        addRow(new ArrayList());
     }
 
     /**
@@ -128,7 +176,15 @@ public class GridList implements java.io.Serializable {
      */
     public void addRow(ArrayList newRow) {
         if (newRow != null) {
+            ownRows();
             rows.add(newRow);
+            if (ownedRows != null) {
+                ownedRows.set(rows.size() - 1);
+            }
+
+            if (indexes != null) {
+                indexes.rowAdded(rows.size() - 1, newRow);
+            }
         }
     }
 
@@ -147,33 +203,83 @@ public class GridList implements java.io.Serializable {
 
     /**
      * Returns a row from the GridList. If a row number is entered that does not
-     * exist in the grid, null is returned.
+     * exist in the grid, null is returned. Never changes the GridList, so it is
+     * safe for readers of a snapshot.
      *
      * @param rowNumber zero-based integer for the row to return
      * @return List List of Objects representing the GridList row
      */
     private ArrayList getRow(int rowNumber) {
-        ArrayList output = null;
+        if (rowNumber < 0 || rowNumber >= rows.size()) {
+            return null;
+        }
 
-        try {
-            output = (ArrayList) rows.get(rowNumber);
+        return (ArrayList) rows.get(rowNumber);
+    }
 
-        } catch (IndexOutOfBoundsException ioobe) {
+    /**
+     * Returns a row that may be changed in place, creating it (and any rows
+     * before it) if needed, and copying it first if it is shared with a
+     * snapshot.
+     */
+    private ArrayList getWritableRow(int rowNumber) {
+        if (rowNumber >= rows.size()) {
             log.debug(" Adding new row at position: " + rowNumber);
 
-            output = new ArrayList(getNumCols());
+            int firstNewRow = rows.size();
+
+            ownRows();
+            ArrayList output = new ArrayList(getNumCols());
             while (rows.size() < rowNumber - 1) {
                 rows.add(new ArrayList());
             }
             rows.add(output);
+            if (ownedRows != null) {
+                ownedRows.set(firstNewRow, rows.size());
+            }
 
-        } catch (Exception e) {
-            log.debug("Some other exception...", e);
+            if (indexes != null) {
+                indexes.rowsAdded(firstNewRow, rows);
+            }
+
+            return output;
+        }
+
+        ArrayList output = getRow(rowNumber);
+
+        if (ownedRows != null && output != null && !ownedRows.get(rowNumber)) {
+            output = ownRow(rowNumber);
         }
 
         return output;
     }
 
+    /**
+     * Stops sharing the list of rows with any snapshot, by copying the list.
+     * The rows themselves are not copied.
+     */
+    private void ownRows() {
+        if (sharedRows) {
+            rows = new ArrayList(rows);
+            sharedRows = false;
+        }
+    }
+
+    /**
+     * Replaces a row shared with a snapshot with a copy of it.
+     */
+    private ArrayList ownRow(int rowNumber) {
+        ownRows();
+
+        ArrayList row = (ArrayList) rows.get(rowNumber);
+        ArrayList copy = (row == null) ? null : new ArrayList(row);
+
+        rows.set(rowNumber, copy);
+        ownedRows.set(rowNumber);
+
+        return copy;
+    }
+
     /**
      * Returns a column from the GridList. If a column name that does not exist
      * is passed, an empty ArrayList is returned.
@@ -386,6 +492,109 @@ public class GridList implements java.io.Serializable {
         return getBoolean(row, col);
     }
 
+    /**
+     * Returns a Spliterator over the rows, as RowViews that read the rows in
+     * place. It splits into contiguous ranges of rows with exact sizes, for
+     * use with parallel streams. Rows must not be added or removed while it
+     * is in use.
+     */
+    public Spliterator<RowView> rowSpliterator() {
+        return new RowSpliterator(rows);
+    }
+
+    /**
+     * Returns a Stream of the rows, as RowViews.
+     *
+     * @param parallel True for a parallel Stream
+     */
+    public Stream<RowView> rows(boolean parallel) {
+        return StreamSupport.stream(rowSpliterator(), parallel);
+    }
+
+    /**
+     * Returns an accessor that reads a column as Strings, with the name
+     * resolved once rather than on every call.
+     *
+     * @param columnName The name of the column
+     * @return StringColumn An accessor for the column
+     * @throws IllegalArgumentException If there is no column with that name
+     */
+    public StringColumn getStringColumn(String columnName) {
+        return new StringColumn(getIndexColumn(columnName));
+    }
+
+    /**
+     * Returns an accessor that reads a column as Strings.
+     *
+     * @param column zero-based column number
+     */
+    public StringColumn getStringColumn(int column) {
+        return new StringColumn(column);
+    }
+
+    /**
+     * Returns an accessor that reads a column as primitive ints, with the
+     * name resolved once rather than on every call.
+     *
+     * @param columnName The name of the column
+     * @return IntColumn An accessor for the column
+     * @throws IllegalArgumentException If there is no column with that name
+     */
+    public IntColumn getIntColumn(String columnName) {
+        return new IntColumn(getIndexColumn(columnName));
+    }
+
+    /**
+     * Returns an accessor that reads a column as primitive ints.
+     *
+     * @param column zero-based column number
+     */
+    public IntColumn getIntColumn(int column) {
+        return new IntColumn(column);
+    }
+
+    /**
+     * Returns an accessor that reads a column as primitive doubles, with the
+     * name resolved once rather than on every call.
+     *
+     * @param columnName The name of the column
+     * @return DoubleColumn An accessor for the column
+     * @throws IllegalArgumentException If there is no column with that name
+     */
+    public DoubleColumn getDoubleColumn(String columnName) {
+        return new DoubleColumn(getIndexColumn(columnName));
+    }
+
+    /**
+     * Returns an accessor that reads a column as primitive doubles.
+     *
+     * @param column zero-based column number
+     */
+    public DoubleColumn getDoubleColumn(int column) {
+        return new DoubleColumn(column);
+    }
+
+    /**
+     * Returns an accessor that reads a column as Dates, with the name
+     * resolved once rather than on every call.
+     *
+     * @param columnName The name of the column
+     * @return DateColumn An accessor for the column
+     * @throws IllegalArgumentException If there is no column with that name
+     */
+    public DateColumn getDateColumn(String columnName) {
+        return new DateColumn(getIndexColumn(columnName));
+    }
+
+    /**
+     * Returns an accessor that reads a column as Dates.
+     *
+     * @param column zero-based column number
+     */
+    public DateColumn getDateColumn(int column) {
+        return new DateColumn(column);
+    }
+
     /**
      * Returns the column number (zero-based) for the specified column name
      *
@@ -437,17 +646,26 @@ public class GridList implements java.io.Serializable {
         log.debug("GridList.setItem(" + row + ", " + column + ", " + value + ")");
 
         //if the row called for is not found, create enough rows to add it in
+        ownRows();
         rows.ensureCapacity(row);
         log.debug("NUM ROWS: " + getNumRows());
 
-        ArrayList rowToSet = getRow(row);
+        ArrayList rowToSet = getWritableRow(row);
         log.debug("ROW TO SET: " + rowToSet);
 
+        Object[] oldValues = (indexes == null) ? null : indexes.beforeChange(rowToSet);
+
         //if there are not enough items, add blanks ("") until there are
         log.debug("ROW CAPACITY: " + rowToSet.size());
         rowToSet.ensureCapacity(column);
         log.debug("ROW CAPACITY: " + rowToSet.size());
-        return rowToSet.set(column, value);
+        Object output = rowToSet.set(column, value);
+
+        if (indexes != null) {
+            indexes.rowChanged(row, rowToSet, oldValues);
+        }
+
+        return output;
     }
 
     /**
@@ -465,21 +683,150 @@ public class GridList implements java.io.Serializable {
         log.debug("GridList.setItem(" + row + ", " + columnName + ", " + value + ")");
 
         //if the row called for is not found, create enough rows to add it in       
+        ownRows();
         rows.ensureCapacity(row);
         log.debug("NUM ROWS: " + getNumRows());
 
-        ArrayList rowToSet = getRow(row);
+        ArrayList rowToSet = getWritableRow(row);
         log.debug("ROW TO SET: " + rowToSet);
 
         log.debug("setItem(): COLUMNS: " + columnNames);
         int columnNumber = getColumnNumber(columnName);
         log.debug("setItem(): COLUMN NUMBER: " + columnNumber);
 
+        Object[] oldValues = (indexes == null) ? null : indexes.beforeChange(rowToSet);
+
         //if there are not enough items, add blanks ("") until there are        
         ensureCapacity(rowToSet, columnNumber + 1);
         log.debug("ROW CAPACITY: " + rowToSet.size() + " ENSURING CAPACITY: " + (columnNumber + 1));
         log.debug("ROW CAPACITY: " + rowToSet.size());
-        return rowToSet.set(columnNumber, value);
+        Object output = rowToSet.set(columnNumber, value);
+
+        if (indexes != null) {
+            indexes.rowChanged(row, rowToSet, oldValues);
+        }
+
+        return output;
+    }
+
+    /**
+     * Creates a hash index on a column, for fast equality lookups. The index
+     * is kept up to date as rows are added and items are set.
+     *
+     * @param column zero-based column number to index
+     * @return HashIndex The new index
+     */
+    public HashIndex createHashIndex(int column) {
+        return getIndexes().add(new HashIndex(column), rows);
+    }
+
+    /**
+     * Creates a hash index on a named column.
+     *
+     * @param columnName The name of the column to index
+     * @return HashIndex The new index
+     * @throws IllegalArgumentException If there is no column with that name
+     */
+    public HashIndex createHashIndex(String columnName) {
+        return createHashIndex(getIndexColumn(columnName));
+    }
+
+    /**
+     * Creates a sorted index on a column, for lookups and range queries. The
+     * index is kept up to date as rows are added and items are set.
+     *
+     * @param column zero-based column number to index
+     * @return SortedIndex The new index
+     */
+    public SortedIndex createSortedIndex(int column) {
+        return getIndexes().add(new SortedIndex(column), rows);
+    }
+
+    /**
+     * Creates a sorted index on a named column.
+     *
+     * @param columnName The name of the column to index
+     * @return SortedIndex The new index
+     * @throws IllegalArgumentException If there is no column with that name
+     */
+    public SortedIndex createSortedIndex(String columnName) {
+        return createSortedIndex(getIndexColumn(columnName));
+    }
+
+    /**
+     * Removes an index created on this GridList, so that it is no longer
+     * maintained.
+     *
+     * @return boolean True if the index was removed
+     */
+    public boolean dropIndex(ColumnIndex index) {
+        return indexes != null && indexes.remove(index);
+    }
+
+    /**
+     * Removes every index created on this GridList.
+     */
+    public void dropIndexes() {
+        indexes = null;
+    }
+
+    /**
+     * Returns the numbers of the rows whose column equals a value. Uses an
+     * index on the column if there is one, otherwise scans every row.
+     *
+     * @param columnName The name of the column
+     * @param value The value to look for. May be null.
+     * @return int[] Row numbers in ascending order
+     */
+    public int[] findRows(String columnName, Object value) {
+        return findRows(getColumnNumber(columnName), value);
+    }
+
+    /**
+     * Returns the numbers of the rows whose column equals a value. Uses an
+     * index on the column if there is one, otherwise scans every row.
+     *
+     * @param column zero-based column number
+     * @param value The value to look for. May be null.
+     * @return int[] Row numbers in ascending order
+     */
+    public int[] findRows(int column, Object value) {
+        ColumnIndex index = (indexes == null) ? null : indexes.get(column);
+        if (index != null) {
+            return index.find(value);
+        }
+
+        int[] output = new int[16];
+        int count = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            List row = (List) rows.get(i);
+            Object item = (row != null && column < row.size()) ? row.get(column) : null;
+
+            if (value == null ? item == null : value.equals(item)) {
+                if (count == output.length) {
+                    output = Arrays.copyOf(output, count * 2);
+                }
+                output[count++] = i;
+            }
+        }
+
+        return Arrays.copyOf(output, count);
+    }
+
+    private IndexSet getIndexes() {
+        if (indexes == null) {
+            indexes = new IndexSet();
+        }
+        return indexes;
+    }
+
+    private int getIndexColumn(String columnName) {
+        Integer column = (columnName == null) ? null : (Integer) columnNames.get(columnName.toUpperCase());
+
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown column: " + columnName);
+        }
+        return column;
     }
 
     private void ensureCapacity(List list, int capacity) {
@@ -489,19 +836,151 @@ public class GridList implements java.io.Serializable {
     }
 
     /**
-     * Outputs this GridList object to the filesystem
+     * Outputs this GridList object to the filesystem, in the platform default
+     * Charset, without quoting fields. Any existing file is replaced.
      *
      * @param filename The full filename of the output file
      * @param delimiter The delimiter to separate values
      * @return boolean True if the file output completed successfully
      */
     public boolean toFile(String filename, String delimiter) {
+        return toFile(filename, delimiter, Charset.defaultCharset(), QuotePolicy.NONE);
+    }
 
-        try {
-            //create a new file for read/write
-            RandomAccessFile output = new RandomAccessFile(filename, "rw");
+    /**
+     * Outputs this GridList object to the filesystem, with a header row of
+     * column names. Rows are written as they are formatted, so memory use does
+     * not grow with the size of the GridList. Any existing file is replaced.
+     *
+     * @param filename The full filename of the output file
+     * @param delimiter The delimiter to separate values
+     * @param charset The Charset to encode the file with
+     * @param quotePolicy Which fields to enclose in quotes
+     * @return boolean True if the file output completed successfully
+     */
+    public boolean toFile(String filename, String delimiter, Charset charset, QuotePolicy quotePolicy) {
 
-            output.writeBytes(toString(delimiter));
+        try (DelimitedWriter output = new DelimitedWriter(new FileOutputStream(filename), charset, delimiter)) {
+            output.setQuotePolicy(quotePolicy);
+
+            write(output, true);
+
+            return true;
+
+        } catch (Exception e) {
+            log.debug("", e);
+        }
+
+        return false;
+
+    }
+
+    /**
+     * Writes this GridList to a Writer, formatted as toString(delimiter,
+     * lineSep, includeHeaders) would format it. The Writer is flushed but not
+     * closed.
+     *
+     * @param out Writer to write to
+     * @param delimiter The delimiter to separate values
+     * @param lineSep The line separator to use
+     * @param includeHeaders True if the output should include the column
+     * header names
+     * @throws IOException If the output cannot be written
+     */
+    public void write(Writer out, String delimiter, String lineSep, boolean includeHeaders) throws IOException {
+        DelimitedWriter output = new DelimitedWriter(out, delimiter);
+        output.setQuotePolicy(QuotePolicy.NONE);
+        output.setLineSeparator(lineSep);
+
+        write(output, includeHeaders);
+
+        output.flush();
+    }
+
+    /**
+     * Writes this GridList to an OutputStream, formatted as
+     * toString(delimiter, lineSep, includeHeaders) would format it. The stream
+     * is flushed but not closed.
+     *
+     * @param out OutputStream to write to
+     * @param charset The Charset to encode output with
+     * @param delimiter The delimiter to separate values
+     * @param lineSep The line separator to use
+     * @param includeHeaders True if the output should include the column
+     * header names
+     * @throws IOException If the output cannot be written
+     */
+    public void write(OutputStream out, Charset charset, String delimiter, String lineSep, boolean includeHeaders) throws IOException {
+        DelimitedWriter output = new DelimitedWriter(out, charset, delimiter);
+        output.setQuotePolicy(QuotePolicy.NONE);
+        output.setLineSeparator(lineSep);
+
+        write(output, includeHeaders);
+
+        output.flush();
+    }
+
+    /**
+     * Writes this GridList to a channel, such as a FileChannel, at its current
+     * position, formatted as toString(delimiter, lineSep, includeHeaders)
+     * would format it. The channel is not closed.
+     *
+     * @param channel Channel to write to
+     * @param charset The Charset to encode output with
+     * @param delimiter The delimiter to separate values
+     * @param lineSep The line separator to use
+     * @param includeHeaders True if the output should include the column
+     * header names
+     * @throws IOException If the output cannot be written
+     */
+    public void write(WritableByteChannel channel, Charset charset, String delimiter, String lineSep, boolean includeHeaders) throws IOException {
+        write(Channels.newOutputStream(channel), charset, delimiter, lineSep, includeHeaders);
+    }
+
+    /**
+     * Writes this GridList to a DelimitedWriter, which controls the delimiter,
+     * line separator and quoting. Null items are written as the writer's null
+     * value. The writer is not flushed or closed.
+     *
+     * @param output DelimitedWriter to write rows to
+     * @param includeHeaders True if the output should start with a row of
+     * column header names
+     * @throws IOException If the output cannot be written
+     */
+    public void write(DelimitedWriter output, boolean includeHeaders) throws IOException {
+
+        if (includeHeaders) {
+            for (Object header : columnNames.keySet()) {
+                output.writeField(header);
+            }
+            output.endRow();
+        }
+
+        for (Object row : rows) {
+            List currentRow = (List) row;
+
+            if (currentRow != null) {
+                for (Object currentItem : currentRow) {
+                    output.writeField(currentItem);
+                }
+            }
+
+            output.endRow();
+        }
+    }
+
+    /**
+     * Writes this GridList to the filesystem as a binary snapshot, which can be
+     * reloaded with Snapshot. Any existing file is replaced.
+     *
+     * @param filename The full filename of the output file
+     * @param compress True to compress the snapshot
+     * @return boolean True if the file output completed successfully
+     */
+    public boolean toSnapshot(String filename, boolean compress) {
+
+        try {
+            Snapshot.write(this, new File(filename), compress);
 
             return true;
 
@@ -558,32 +1037,15 @@ public class GridList implements java.io.Serializable {
      */
     public String toString(String delimiter, String lineSep, boolean includeHeaders) {
 
-        int approxOutputSize = getNumRows() * getNumCols() * DEFAULT_ELEMENT_SIZE;
-        StringBuilder output = new StringBuilder(approxOutputSize);
-
-        //output header row
-        if (includeHeaders) {
-            Set headers = columnNames.keySet();
-            Iterator hi = headers.iterator();
-            while (hi.hasNext()) {
-                String header = (String) hi.next();
-                output.append(header);
-
-                if (hi.hasNext()) {
-                    output.append(delimiter);
-                }
-            }
-            output.append(lineSep);
-        }
-
-        //output data
-        for (int i = 0; i < rows.size(); i++) {
-            String row = getRowString(i, delimiter);
-            output.append(row);
-
-            //output newline
-            output.append(lineSep);
+        //estimate in long, since rows * columns * 25 overflows an int for large grids
+        long approxOutputSize = (long) getNumRows() * getNumCols() * DEFAULT_ELEMENT_SIZE;
+        StringWriter output = new StringWriter((int) Math.min(approxOutputSize, MAX_PRESIZE));
 
+        try {
+            write(output, delimiter, lineSep, includeHeaders);
+        } catch (IOException ioe) {
+            //StringWriter does not throw
+            log.debug("", ioe);
         }
 
         return output.toString();
@@ -661,9 +1123,40 @@ public class GridList implements java.io.Serializable {
         return input;
     }
 
+    /**
+     * Returns a copy of this GridList that shares its rows with this one, in
+     * constant time. After a snapshot, either GridList copies the list of rows
+     * the first time it adds or changes a row, and copies each row the first
+     * time it changes it, so changes to one are never seen by the other. A
+     * snapshot that is not changed can be read by many threads while this
+     * GridList continues to be changed by one thread.
+     * <P>
+     * Indexes are not copied to the snapshot.
+     *
+     * @return GridList A copy-on-write copy of this GridList
+     */
+    public GridList snapshot() {
+        GridList output = new GridList(0);
+
+        output.setTrim(trim);
+        output.setUnquote(unquote);
+        output.setReturnNulls(returnNulls);
+        output.setColumnNames(new HashMap(columnNames));
+
+        output.rows = rows;
+        output.sharedRows = true;
+        output.ownedRows = new BitSet();
+
+        sharedRows = true;
+        ownedRows = new BitSet();
+
+        return output;
+    }
+
     /**
      * Returns a shallow clone of this GridList (the elements themselves are not
-     * copies)
+     * copies). Each row is copied; use snapshot() for a copy that shares rows
+     * until they are changed.
      */
     public Object clone() {
         GridList clone = new GridList(this.getNumRows());
@@ -687,4 +1180,234 @@ public class GridList implements java.io.Serializable {
         return clone;
     }
 
+    /**
+     * Reads one column of this GridList by number. Accessors are created once
+     * (for example with getIntColumn) and then read cells directly, without
+     * looking up the column name, creating missing rows, or boxing. Reading a
+     * row that does not exist returns the same as reading an empty cell.
+     */
+    public abstract class ColumnAccessor {
+
+        private final int column;
+
+        ColumnAccessor(int column) {
+            if (column < 0) {
+                throw new IllegalArgumentException("Invalid column: " + column);
+            }
+            this.column = column;
+        }
+
+        /**
+         * Returns the zero-based number of the column.
+         */
+        public int getColumnNumber() {
+            return column;
+        }
+
+        /**
+         * Returns true if the cell is null or missing.
+         */
+        public boolean isNull(int row) {
+            return value(row) == null;
+        }
+
+        /**
+         * Returns the raw value of a cell, or null if it is missing.
+         */
+        public Object getObject(int row) {
+            return value(row);
+        }
+
+        /**
+         * Returns the row numbers of the GridList, which split into
+         * contiguous ranges.
+         */
+        IntStream rowNumbers(boolean parallel) {
+            IntStream output = IntStream.range(0, rows.size());
+
+            return parallel ? output.parallel() : output;
+        }
+
+        Object value(int row) {
+            if (row < 0 || row >= rows.size()) {
+                return null;
+            }
+
+            List values = (List) rows.get(row);
+            return (values == null || column >= values.size()) ? null : values.get(column);
+        }
+    }
+
+    /**
+     * Reads a column as Strings.
+     */
+    public class StringColumn extends ColumnAccessor {
+
+        StringColumn(int column) {
+            super(column);
+        }
+
+        /**
+         * Returns a cell as a String, the same as getString(row, column): the
+         * value's toString(), or "" if the cell is null or missing.
+         */
+        public String get(int row) {
+            Object output = value(row);
+
+            if (output instanceof String) {
+                return (String) output;
+            }
+
+            return (output != null) ? output.toString() : "";
+        }
+
+        /**
+         * Returns the values of the column, in row order, as get(row) reads
+         * them.
+         *
+         * @param parallel True for a parallel Stream
+         */
+        public Stream<String> stream(boolean parallel) {
+            return rowNumbers(parallel).mapToObj(this::get);
+        }
+    }
+
+    /**
+     * Reads a column as primitive ints. Cells may hold any Number, or a
+     * String of a whole number.
+     */
+    public class IntColumn extends ColumnAccessor {
+
+        IntColumn(int column) {
+            super(column);
+        }
+
+        /**
+         * Returns a cell as an int, or a default if the cell is empty or not a
+         * whole number.
+         */
+        public int getInt(int row, int defaultValue) {
+            Object output = value(row);
+
+            if (output instanceof Number) {
+                return ((Number) output).intValue();
+            }
+            if (output instanceof String) {
+                try {
+                    return Integer.parseInt((String) output);
+                } catch (NumberFormatException nfe) {
+                    //fall through
+                }
+            }
+
+            return defaultValue;
+        }
+
+        /**
+         * Returns a cell as an int, or 0 if it is empty or not a whole number.
+         */
+        public int getInt(int row) {
+            return getInt(row, 0);
+        }
+
+        /**
+         * Returns the values of the column, in row order, as primitive ints.
+         *
+         * @param defaultValue The value for empty or non-numeric cells
+         * @param parallel True for a parallel Stream
+         */
+        public IntStream stream(int defaultValue, boolean parallel) {
+            return rowNumbers(parallel).map(row -> getInt(row, defaultValue));
+        }
+    }
+
+    /**
+     * Reads a column as primitive doubles. Cells may hold any Number, or a
+     * numeric String.
+     */
+    public class DoubleColumn extends ColumnAccessor {
+
+        DoubleColumn(int column) {
+            super(column);
+        }
+
+        /**
+         * Returns a cell as a double, or a default if the cell is empty or not
+         * numeric.
+         */
+        public double getDouble(int row, double defaultValue) {
+            Object output = value(row);
+
+            if (output instanceof Number) {
+                return ((Number) output).doubleValue();
+            }
+            if (output instanceof String && !((String) output).isEmpty()) {
+                try {
+                    return Double.parseDouble((String) output);
+                } catch (NumberFormatException nfe) {
+                    //fall through
+                }
+            }
+
+            return defaultValue;
+        }
+
+        /**
+         * Returns a cell as a double, or NaN if it is empty or not numeric.
+         */
+        public double getDouble(int row) {
+            return getDouble(row, Double.NaN);
+        }
+
+        /**
+         * Returns the values of the column, in row order, as primitive
+         * doubles.
+         *
+         * @param defaultValue The value for empty or non-numeric cells
+         * @param parallel True for a parallel Stream
+         */
+        public DoubleStream stream(double defaultValue, boolean parallel) {
+            return rowNumbers(parallel).mapToDouble(row -> getDouble(row, defaultValue));
+        }
+    }
+
+    /**
+     * Reads a column as Dates.
+     */
+    public class DateColumn extends ColumnAccessor {
+
+        DateColumn(int column) {
+            super(column);
+        }
+
+        /**
+         * Returns a cell as a Date, or null if it does not hold a Date.
+         */
+        public Date get(int row) {
+            Object output = value(row);
+
+            return (output instanceof Date) ? (Date) output : null;
+        }
+
+        /**
+         * Returns a cell as milliseconds since the epoch, without allocating,
+         * or a default if it does not hold a Date.
+         */
+        public long getTime(int row, long defaultValue) {
+            Object output = value(row);
+
+            return (output instanceof Date) ? ((Date) output).getTime() : defaultValue;
+        }
+
+        /**
+         * Returns the values of the column, in row order, including nulls for
+         * cells that do not hold a Date.
+         *
+         * @param parallel True for a parallel Stream
+         */
+        public Stream<Date> stream(boolean parallel) {
+            return rowNumbers(parallel).mapToObj(this::get);
+        }
+    }
+
 }
@@ -15,15 +15,18 @@
  */
 package com.codemagi.util;
 
-import java.awt.Point;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
  * GridMap is an expandable two-dimensional data structure of Objects, backed by
- * a HashMap. Keys are generated as Points from the input row and column.
+ * a LongObjectMap. Each cell is keyed by a primitive long combining its row
+ * and column, so reading and writing cells does not allocate.
  * <P>
  * In general, for a fully filled grid (such as a result set from a database) a
  * List of Lists will provide better performance. This data structure is better
@@ -38,7 +41,11 @@ public class GridMap implements java.io.Serializable {
     Logger log = LogManager.getLogger(this.getClass());
 
     //members
-    private Map map;
+    private LongObjectMap map;
+
+    //populated columns of each row, and populated rows of each column
+    private final LongObjectMap rowIndex = new LongObjectMap();
+    private final LongObjectMap columnIndex = new LongObjectMap();
     private Map columnNames = new HashMap();
     private Map rowNames = new HashMap();
 
@@ -55,7 +62,7 @@ public class GridMap implements java.io.Serializable {
      * factor.
      */
     public GridMap() {
-        map = new HashMap();
+        map = new LongObjectMap();
     }
 
     /**
@@ -63,15 +70,23 @@ public class GridMap implements java.io.Serializable {
      * default load factor.
      */
     public GridMap(int initialCapacity) {
-        map = new HashMap(initialCapacity);
+        map = new LongObjectMap(initialCapacity);
     }
 
     /**
      * Constructs an empty GridMap with the specified initial capacity and load
-     * factor.
+     * factor. Load factors above 0.9 are reduced to 0.9.
      */
     public GridMap(int initialCapacity, int loadFactor) {
-        map = new HashMap(initialCapacity, loadFactor);
+        map = new LongObjectMap(initialCapacity, loadFactor);
+    }
+
+    /**
+     * Constructs an empty GridMap with the specified initial capacity and load
+     * factor. Load factors above 0.9 are reduced to 0.9.
+     */
+    public GridMap(int initialCapacity, float loadFactor) {
+        map = new LongObjectMap(initialCapacity, loadFactor);
     }
 
     //GETTERS AND SETTERS
@@ -98,6 +113,14 @@ public class GridMap implements java.io.Serializable {
         returnNulls = newValue;
     }
 
+    /**
+     * Returns true if null values are returned for empty items, rather than
+     * "".
+     */
+    public boolean isReturnNulls() {
+        return returnNulls;
+    }
+
     /**
      * Sets a map of column names. Null input is skipped.
      */
@@ -167,11 +190,7 @@ public class GridMap implements java.io.Serializable {
      */
     public Object getItem(int row, int column) {
 
-        log.debug("getItem( " + row + ", " + column + " )");
-
-        Point p = new Point(row, column);
-
-        Object output = map.get(p);
+        Object output = map.get(key(row, column));
 
         if (output == null && !returnNulls) {
             output = "";
@@ -237,7 +256,8 @@ public class GridMap implements java.io.Serializable {
 
     /**
      * Sets or replaces the value of an item at a specified position in the
-     * GridMap. If row or column is not found, it is created.
+     * GridMap. If row or column is not found, it is created. Setting null
+     * removes the item.
      *
      * @param row zero-based row number to set at
      * @param column zero-based column number to set at
@@ -245,9 +265,15 @@ public class GridMap implements java.io.Serializable {
      */
     public void setItem(int row, int column, Object value) {
 
-        Point p = new Point(row, column);
+        Object old = map.put(key(row, column), value);
 
-        map.put(p, value);
+        if (old == null && value != null) {
+            addToIndex(rowIndex, row, column);
+            addToIndex(columnIndex, column, row);
+        } else if (old != null && value == null) {
+            removeFromIndex(rowIndex, row, column);
+            removeFromIndex(columnIndex, column, row);
+        }
 
         numRows = Math.max(numRows, row);
         numCols = Math.max(numCols, column);
@@ -311,6 +337,125 @@ public class GridMap implements java.io.Serializable {
         return theInt;
     }
 
+    /**
+     * Returns the number of items in the GridMap.
+     */
+    public int getNumItems() {
+        return map.size();
+    }
+
+    /**
+     * Returns the numbers of the populated columns of a row, in ascending
+     * order. The cost is proportional to the number of columns returned.
+     *
+     * @param row zero-based row number
+     * @return int[] Column numbers. Empty if the row has no items.
+     */
+    public int[] getPopulatedColumns(int row) {
+        SortedIntSet columns = (SortedIntSet) rowIndex.get(row);
+
+        return (columns == null) ? new int[0] : columns.toArray();
+    }
+
+    /**
+     * Returns the numbers of the populated rows of a column, in ascending
+     * order. The cost is proportional to the number of rows returned.
+     *
+     * @param column zero-based column number
+     * @return int[] Row numbers. Empty if the column has no items.
+     */
+    public int[] getPopulatedRows(int column) {
+        SortedIntSet rows = (SortedIntSet) columnIndex.get(column);
+
+        return (rows == null) ? new int[0] : rows.toArray();
+    }
+
+    /**
+     * Returns an Iterator over the populated cells of a row, in column order.
+     * The columns are fixed when the Iterator is created.
+     */
+    public Iterator<Cell> rowIterator(int row) {
+        return Spliterators.iterator(rowSpliterator(row));
+    }
+
+    /**
+     * Returns an Iterator over the populated cells of a column, in row order.
+     * The rows are fixed when the Iterator is created.
+     */
+    public Iterator<Cell> columnIterator(int column) {
+        return Spliterators.iterator(columnSpliterator(column));
+    }
+
+    /**
+     * Returns a Spliterator over the populated cells of a row, in column
+     * order.
+     */
+    public Spliterator<Cell> rowSpliterator(int row) {
+        return new LineSpliterator(row, getPopulatedColumns(row), true);
+    }
+
+    /**
+     * Returns a Spliterator over the populated cells of a column, in row
+     * order.
+     */
+    public Spliterator<Cell> columnSpliterator(int column) {
+        return new LineSpliterator(column, getPopulatedRows(column), false);
+    }
+
+    /**
+     * Returns a Spliterator over every populated cell, in no particular order.
+     * The cost of a full traversal is proportional to the number of items,
+     * not to rows times columns. The GridMap must not be changed while the
+     * Spliterator is in use.
+     */
+    public Spliterator<Cell> cellSpliterator() {
+        return new SlotSpliterator(map, 0, map.capacity(), map.size());
+    }
+
+    /**
+     * Returns a Stream of every populated cell.
+     *
+     * @param parallel True for a parallel Stream
+     */
+    public Stream<Cell> cells(boolean parallel) {
+        return StreamSupport.stream(cellSpliterator(), parallel);
+    }
+
+    /**
+     * Returns the item at a position, or null. Unlike getItem, empty items
+     * are always null.
+     */
+    protected Object getValue(int row, int column) {
+        return map.get(key(row, column));
+    }
+
+    static void addToIndex(LongObjectMap index, int line, int position) {
+        SortedIntSet positions = (SortedIntSet) index.get(line);
+        if (positions == null) {
+            positions = new SortedIntSet();
+            index.put(line, positions);
+        }
+        positions.add(position);
+    }
+
+    static void removeFromIndex(LongObjectMap index, int line, int position) {
+        SortedIntSet positions = (SortedIntSet) index.get(line);
+        if (positions != null) {
+            positions.remove(position);
+            if (positions.size() == 0) {
+                index.remove(line);
+            }
+        }
+    }
+
+    /**
+     * Combines a row and column into a single key: the row in the high 32
+     * bits and the column in the low 32 bits.
+     */
+    static long key(int row, int column) {
+        return ((long) row << 32) | (column & 0xFFFFFFFFL);
+    }
+
     /**
      * Returns the column name, for the specified column number (zero-based)
      *
@@ -326,4 +471,160 @@ public class GridMap implements java.io.Serializable {
         return columnName;
     }
 
+    /**
+     * A populated cell of a GridMap: its row, column and value.
+     */
+    public static class Cell {
+
+        private final int row;
+        private final int column;
+        private final Object value;
+
+        public Cell(int row, int column, Object value) {
+            this.row = row;
+            this.column = column;
+            this.value = value;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "(" + row + ", " + column + ")=" + value;
+        }
+    }
+
+    /**
+     * Visits the cells of one row or column, given the populated positions.
+     * Cells removed after the positions were taken are skipped, so the size is
+     * only an estimate.
+     */
+    private class LineSpliterator implements Spliterator<Cell> {
+
+        private final int line;
+        private final int[] positions;
+        private final boolean isRow;
+        private int index;
+        private final int end;
+
+        LineSpliterator(int line, int[] positions, boolean isRow) {
+            this(line, positions, isRow, 0, positions.length);
+        }
+
+        private LineSpliterator(int line, int[] positions, boolean isRow, int index, int end) {
+            this.line = line;
+            this.positions = positions;
+            this.isRow = isRow;
+            this.index = index;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Cell> action) {
+            while (index < end) {
+                int position = positions[index++];
+                int row = isRow ? line : position;
+                int column = isRow ? position : line;
+
+                Object value = getValue(row, column);
+                if (value != null) {
+                    action.accept(new Cell(row, column, value));
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public Spliterator<Cell> trySplit() {
+            int mid = (index + end) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+
+            Spliterator<Cell> prefix = new LineSpliterator(line, positions, isRow, index, mid);
+            index = mid;
+
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | DISTINCT;
+        }
+    }
+
+    /**
+     * Visits the used slots of a LongObjectMap in a range of slots.
+     */
+    static class SlotSpliterator implements Spliterator<Cell> {
+
+        private final LongObjectMap cells;
+        private int slot;
+        private final int end;
+        private long estimate;
+
+        SlotSpliterator(LongObjectMap cells, int slot, int end, long estimate) {
+            this.cells = cells;
+            this.slot = slot;
+            this.end = end;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Cell> action) {
+            while (slot < end) {
+                int current = slot++;
+
+                if (cells.isSlotUsed(current)) {
+                    long key = cells.slotKey(current);
+                    action.accept(new Cell((int) (key >> 32), (int) key, cells.slotValue(current)));
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        @Override
+        public Spliterator<Cell> trySplit() {
+            int mid = (slot + end) >>> 1;
+            if (mid <= slot || end - slot < 1024) {
+                return null;
+            }
+
+            estimate >>>= 1;
+            Spliterator<Cell> prefix = new SlotSpliterator(cells, slot, mid, estimate);
+            slot = mid;
+
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL | DISTINCT;
+        }
+    }
+
 }
@@ -0,0 +1,625 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Groups the rows of a GridList or ObjectFlatFile by one or more columns and
+ * computes aggregates (count, sum, min, max, average, distinct count) for each
+ * group. The result is a new GridList with one row per group: the group
+ * columns first, then one column per aggregate, with groups in the order they
+ * first appear.
+ * <P>
+ * Numbers are accumulated in primitive longs and doubles. Values may be
+ * Numbers or numeric Strings (such as rows from DataLoader); null and empty
+ * values are ignored.
+ * <P>
+ * When a ForkJoinPool is given, the rows are split into partitions that are
+ * aggregated in parallel and then merged.
+ * <pre>
+ * GroupBy groupBy = new GroupBy(new int[]{0});
+ * groupBy.addAggregate(AggregateFunction.COUNT, -1, "ROWS");
+ * groupBy.addAggregate(AggregateFunction.SUM, 3, "TOTAL");
+ * GridList totals = groupBy.apply(data, ForkJoinPool.commonPool());
+ * </pre>
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class GroupBy {
+
+    static Logger log = LogManager.getLogger("com.codemagi.util.GroupBy");
+
+    //smallest number of rows worth aggregating on another thread
+    private static final int MIN_PARTITION_SIZE = 10000;
+
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    private final int[] columns;
+    private String[] columnNames = null;
+
+    private final List<AggregateFunction> functions = new ArrayList<>();
+    private final List<Integer> aggregateColumns = new ArrayList<>();
+    private final List<String> aggregateNames = new ArrayList<>();
+
+    /**
+     * Constructor.
+     *
+     * @param columns zero-based numbers of the columns to group by. May be
+     * empty to aggregate every row into a single group.
+     */
+    public GroupBy(int[] columns) {
+        this.columns = columns.clone();
+    }
+
+    /**
+     * Sets the names of the group columns in the result. If not set, names
+     * are taken from the source GridList, or are COLUMN_n.
+     */
+    public void setColumnNames(String[] newValue) {
+        columnNames = (newValue == null) ? null : newValue.clone();
+    }
+
+    /**
+     * Adds an aggregate to compute for each group.
+     *
+     * @param function The aggregate function
+     * @param column zero-based column to aggregate. For COUNT, a negative
+     * column counts rows.
+     * @param name The name of the result column. If null, a name such as
+     * SUM_3 is used.
+     */
+    public void addAggregate(AggregateFunction function, int column, String name) {
+        if (function == null) {
+            throw new IllegalArgumentException("Aggregate function is required");
+        }
+        if (column < 0 && function != AggregateFunction.COUNT) {
+            throw new IllegalArgumentException("Invalid column for " + function + ": " + column);
+        }
+
+        if (name == null) {
+            name = (column < 0) ? function.toString() : function + "_" + column;
+        }
+
+        functions.add(function);
+        aggregateColumns.add(column);
+        aggregateNames.add(name);
+    }
+
+    /**
+     * Groups and aggregates the rows of a GridList on the calling thread.
+     */
+    public GridList apply(GridList source) {
+        return apply(source, null);
+    }
+
+    /**
+     * Groups and aggregates the rows of a GridList.
+     *
+     * @param source The GridList to aggregate
+     * @param pool The pool to aggregate partitions on, or null to aggregate
+     * on the calling thread
+     * @return GridList One row per group
+     */
+    public GridList apply(GridList source, ForkJoinPool pool) {
+        return aggregate(source.readRows(), source.getColumnNames(), pool);
+    }
+
+    /**
+     * Groups and aggregates the rows of an ObjectFlatFile on the calling
+     * thread.
+     */
+    public GridList apply(ObjectFlatFile source) {
+        return apply(source, null);
+    }
+
+    /**
+     * Groups and aggregates the rows of an ObjectFlatFile.
+     *
+     * @param source The ObjectFlatFile to aggregate
+     * @param pool The pool to aggregate partitions on, or null to aggregate
+     * on the calling thread
+     * @return GridList One row per group
+     */
+    public GridList apply(ObjectFlatFile source, ForkJoinPool pool) {
+        final List rows = new ArrayList(source.getNumRows());
+        source.forEachRow(new RowHandler() {
+            @Override
+            public void handleRow(List row) {
+                rows.add(row);
+            }
+        });
+
+        return aggregate(rows, null, pool);
+    }
+
+    private GridList aggregate(List rows, Map sourceNames, ForkJoinPool pool) {
+        int numPartitions = 1;
+        if (pool != null) {
+            numPartitions = Math.min(pool.getParallelism() * PARTITIONS_PER_THREAD, rows.size() / MIN_PARTITION_SIZE);
+        }
+
+        Map<Object, Group> groups;
+        if (numPartitions <= 1) {
+            groups = new Partition(rows, 0, rows.size()).call();
+
+        } else {
+            log.debug("Aggregating " + rows.size() + " rows in " + numPartitions + " partitions");
+
+            List<Partition> tasks = new ArrayList<>(numPartitions);
+            for (int i = 0; i < numPartitions; i++) {
+                int start = (int) ((long) rows.size() * i / numPartitions);
+                int end = (int) ((long) rows.size() * (i + 1) / numPartitions);
+                tasks.add(new Partition(rows, start, end));
+            }
+
+            groups = null;
+            for (Future<Map<Object, Group>> result : pool.invokeAll(tasks)) {
+                Map<Object, Group> partition = get(result);
+
+                if (groups == null) {
+                    groups = partition;
+                    continue;
+                }
+
+                //merging in partition order keeps groups in order of first appearance
+                for (Map.Entry<Object, Group> entry : partition.entrySet()) {
+                    Group group = groups.get(entry.getKey());
+                    if (group == null) {
+                        groups.put(entry.getKey(), entry.getValue());
+                    } else {
+                        group.merge(entry.getValue());
+                    }
+                }
+            }
+        }
+
+        return toGridList(groups, sourceNames);
+    }
+
+    private GridList toGridList(Map<Object, Group> groups, Map sourceNames) {
+        GridList output = new GridList(groups.size());
+
+        //column names
+        Map namesByNumber = new HashMap();
+        if (sourceNames != null) {
+            for (Object entry : sourceNames.entrySet()) {
+                Map.Entry e = (Map.Entry) entry;
+                namesByNumber.put(e.getValue(), e.getKey());
+            }
+        }
+        for (int i = 0; i < columns.length; i++) {
+            String name;
+            if (columnNames != null && i < columnNames.length && columnNames[i] != null) {
+                name = columnNames[i];
+            } else if (namesByNumber.containsKey(columns[i])) {
+                name = namesByNumber.get(columns[i]).toString();
+            } else {
+                name = "COLUMN_" + columns[i];
+            }
+            output.addColumn(name);
+        }
+        for (String name : aggregateNames) {
+            output.addColumn(name);
+        }
+
+        //data
+        for (Group group : groups.values()) {
+            ArrayList row = new ArrayList(columns.length + functions.size());
+            row.addAll(Arrays.asList(group.keyValues));
+
+            for (Accumulator accumulator : group.accumulators) {
+                row.add(accumulator.getResult());
+            }
+
+            output.addRow(row);
+        }
+
+        return output;
+    }
+
+    private static Map<Object, Group> get(Future<Map<Object, Group>> result) {
+        try {
+            return result.get();
+
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while aggregating", ie);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ee.getCause();
+            }
+            throw new IllegalStateException("Error aggregating", ee.getCause());
+        }
+    }
+
+    private Accumulator newAccumulator(int i) {
+        switch (functions.get(i)) {
+            case COUNT:
+                return new CountAccumulator();
+            case SUM:
+                return new SumAccumulator();
+            case MIN:
+                return new MinMaxAccumulator(false);
+            case MAX:
+                return new MinMaxAccumulator(true);
+            case AVG:
+                return new AvgAccumulator();
+            default:
+                return new DistinctAccumulator();
+        }
+    }
+
+    /**
+     * Aggregates a range of rows into groups.
+     */
+    private class Partition implements Callable<Map<Object, Group>> {
+
+        private final List rows;
+        private final int start;
+        private final int end;
+
+        Partition(List rows, int start, int end) {
+            this.rows = rows;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public Map<Object, Group> call() {
+            Map<Object, Group> groups = new LinkedHashMap<>();
+            Numeric scratch = new Numeric();
+
+            int numAggregates = functions.size();
+            int[] aggCols = new int[numAggregates];
+            for (int i = 0; i < numAggregates; i++) {
+                aggCols[i] = aggregateColumns.get(i);
+            }
+
+            for (int r = start; r < end; r++) {
+                List row = (List) rows.get(r);
+                if (row == null) {
+                    continue;
+                }
+
+                //group key: the value itself for one column, else a List of values
+                Object key;
+                if (columns.length == 1) {
+                    key = valueOf(row, columns[0]);
+                } else {
+                    Object[] keyValues = new Object[columns.length];
+                    for (int i = 0; i < columns.length; i++) {
+                        keyValues[i] = valueOf(row, columns[i]);
+                    }
+                    key = Arrays.asList(keyValues);
+                }
+
+                Group group = groups.get(key);
+                if (group == null) {
+                    group = new Group(row);
+                    groups.put(key, group);
+                }
+
+                for (int i = 0; i < numAggregates; i++) {
+                    if (aggCols[i] < 0) {
+                        group.accumulators[i].add(Boolean.TRUE, scratch);
+                        continue;
+                    }
+
+                    Object value = valueOf(row, aggCols[i]);
+                    if (value != null && !"".equals(value)) {
+                        group.accumulators[i].add(value, scratch);
+                    }
+                }
+            }
+
+            return groups;
+        }
+    }
+
+    private static Object valueOf(List row, int column) {
+        return (column < row.size()) ? row.get(column) : null;
+    }
+
+    /**
+     * The key values and accumulators of one group.
+     */
+    private class Group {
+
+        private final Object[] keyValues;
+        private final Accumulator[] accumulators;
+
+        Group(List row) {
+            keyValues = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                keyValues[i] = valueOf(row, columns[i]);
+            }
+
+            accumulators = new Accumulator[functions.size()];
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i] = newAccumulator(i);
+            }
+        }
+
+        void merge(Group other) {
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i].merge(other.accumulators[i]);
+            }
+        }
+    }
+
+    /**
+     * Parses a value as a number, without allocating. Not thread-safe.
+     */
+    static class Numeric {
+
+        long longValue;
+        double doubleValue;
+        boolean integral;
+
+        /**
+         * Returns true if the value is a Number or numeric String, and sets
+         * longValue (if integral) and doubleValue.
+         */
+        boolean parse(Object value) {
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                longValue = ((Number) value).longValue();
+                doubleValue = longValue;
+                integral = true;
+                return true;
+            }
+            if (value instanceof Number) {
+                doubleValue = ((Number) value).doubleValue();
+                integral = false;
+                return true;
+            }
+            if (value instanceof String) {
+                return parse((String) value);
+            }
+            return false;
+        }
+
+        private boolean parse(String s) {
+            int length = s.length();
+            if (length == 0) {
+                return false;
+            }
+
+            //whole numbers of up to 18 digits are parsed directly
+            int i = 0;
+            boolean negative = false;
+            char first = s.charAt(0);
+            if (first == '-' || first == '+') {
+                negative = (first == '-');
+                i = 1;
+            }
+            if (i < length && length - i <= 18) {
+                long value = 0;
+                int j = i;
+                while (j < length) {
+                    char c = s.charAt(j);
+                    if (c < '0' || c > '9') {
+                        break;
+                    }
+                    value = value * 10 + (c - '0');
+                    j++;
+                }
+                if (j == length) {
+                    longValue = negative ? -value : value;
+                    doubleValue = longValue;
+                    integral = true;
+                    return true;
+                }
+            }
+
+            //cheap check before paying for an exception
+            char c = (i < length) ? s.charAt(i) : ' ';
+            if ((c < '0' || c > '9') && c != '.') {
+                return false;
+            }
+
+            try {
+                doubleValue = Double.parseDouble(s);
+                integral = false;
+                return true;
+            } catch (NumberFormatException nfe) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Accumulates one aggregate for one group.
+     */
+    private abstract static class Accumulator {
+
+        abstract void add(Object value, Numeric scratch);
+
+        abstract void merge(Accumulator other);
+
+        abstract Object getResult();
+    }
+
+    private static class CountAccumulator extends Accumulator {
+
+        private long count = 0;
+
+        @Override
+        void add(Object value, Numeric scratch) {
+            count++;
+        }
+
+        @Override
+        void merge(Accumulator other) {
+            count += ((CountAccumulator) other).count;
+        }
+
+        @Override
+        Object getResult() {
+            return count;
+        }
+    }
+
+    private static class SumAccumulator extends Accumulator {
+
+        private long longSum = 0;
+        private double doubleSum = 0;
+        private boolean integral = true;
+        private boolean empty = true;
+
+        @Override
+        void add(Object value, Numeric scratch) {
+            if (!scratch.parse(value)) {
+                return;
+            }
+
+            if (scratch.integral) {
+                longSum += scratch.longValue;
+            } else {
+                doubleSum += scratch.doubleValue;
+                integral = false;
+            }
+            empty = false;
+        }
+
+        @Override
+        void merge(Accumulator other) {
+            SumAccumulator sum = (SumAccumulator) other;
+
+            longSum += sum.longSum;
+            doubleSum += sum.doubleSum;
+            integral &= sum.integral;
+            empty &= sum.empty;
+        }
+
+        @Override
+        Object getResult() {
+            if (empty) {
+                return null;
+            }
+            return integral ? (Object) longSum : (Object) (longSum + doubleSum);
+        }
+    }
+
+    private static class AvgAccumulator extends Accumulator {
+
+        private double sum = 0;
+        private long count = 0;
+
+        @Override
+        void add(Object value, Numeric scratch) {
+            if (scratch.parse(value)) {
+                sum += scratch.doubleValue;
+                count++;
+            }
+        }
+
+        @Override
+        void merge(Accumulator other) {
+            sum += ((AvgAccumulator) other).sum;
+            count += ((AvgAccumulator) other).count;
+        }
+
+        @Override
+        Object getResult() {
+            return (count == 0) ? null : (Object) (sum / count);
+        }
+    }
+
+    private static class MinMaxAccumulator extends Accumulator {
+
+        private final boolean max;
+
+        private Object best = null;
+        private boolean bestNumeric = false;
+        private boolean bestIntegral = false;
+        private long bestLong;
+        private double bestDouble;
+
+        MinMaxAccumulator(boolean max) {
+            this.max = max;
+        }
+
+        @Override
+        void add(Object value, Numeric scratch) {
+            boolean numeric = scratch.parse(value);
+
+            if (best != null) {
+                int comparison;
+                if (numeric && bestNumeric) {
+                    comparison = (scratch.integral && bestIntegral)
+                            ? Long.compare(scratch.longValue, bestLong)
+                            : Double.compare(scratch.doubleValue, bestDouble);
+                } else {
+                    comparison = ColumnComparator.compareValues(value, best);
+                }
+
+                if (max ? comparison <= 0 : comparison >= 0) {
+                    return;
+                }
+            }
+
+            best = value;
+            bestNumeric = numeric;
+            bestIntegral = numeric && scratch.integral;
+            bestLong = scratch.longValue;
+            bestDouble = scratch.doubleValue;
+        }
+
+        @Override
+        void merge(Accumulator other) {
+            MinMaxAccumulator minMax = (MinMaxAccumulator) other;
+
+            if (minMax.best != null) {
+                add(minMax.best, new Numeric());
+            }
+        }
+
+        @Override
+        Object getResult() {
+            return best;
+        }
+    }
+
+    private static class DistinctAccumulator extends Accumulator {
+
+        private final Set values = new HashSet();
+
+        @Override
+        void add(Object value, Numeric scratch) {
+            values.add(value);
+        }
+
+        @Override
+        void merge(Accumulator other) {
+            values.addAll(((DistinctAccumulator) other).values);
+        }
+
+        @Override
+        Object getResult() {
+            return (long) values.size();
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.HashMap;
+
+/**
+ * A ColumnIndex for equality lookups in constant time. Values are matched with
+ * equals(), so an Integer 5 does not match a Long 5 or a String "5".
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class HashIndex extends ColumnIndex {
+
+    private final HashMap map = new HashMap();
+
+    HashIndex(int column) {
+        super(column);
+    }
+
+    @Override
+    public int getNumKeys() {
+        return map.size();
+    }
+
+    @Override
+    Object get(Object value) {
+        return map.get(value);
+    }
+
+    @Override
+    void add(int row, Object value) {
+        map.put(value, addRow(map.get(value), row));
+    }
+
+    @Override
+    void remove(int row, Object value) {
+        Object rows = removeRow(map.get(value), row);
+
+        if (rows == null) {
+            map.remove(value);
+        } else {
+            map.put(value, rows);
+        }
+    }
+
+    @Override
+    void clear() {
+        map.clear();
+    }
+
+}
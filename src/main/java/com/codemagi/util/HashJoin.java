@@ -0,0 +1,442 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Joins two GridLists or ObjectFlatFiles on one or more key columns. A hash
+ * table is built over the smaller side, and the rows of the larger side are
+ * streamed through it, so a join costs one pass over each side rather than a
+ * comparison of every pair of rows.
+ * <P>
+ * Each output row holds the left row's columns followed by the right row's
+ * columns. Short rows are padded with nulls, so the right columns always
+ * start at the same position. Output rows follow the order of the larger
+ * side; for a LEFT join built over the left side, unmatched left rows come
+ * last. As in SQL, a null key matches nothing. Null rows on either side are
+ * skipped, even in a LEFT join.
+ * <P>
+ * When a ForkJoinPool is set, the larger side is split into partitions that
+ * are probed in parallel.
+ * <pre>
+ * HashJoin join = new HashJoin(new int[]{2}, new int[]{0});
+ * join.setJoinType(JoinType.LEFT);
+ * GridList enriched = join.join(transactions, customers);
+ * </pre>
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class HashJoin {
+
+    static Logger log = LogManager.getLogger("com.codemagi.util.HashJoin");
+
+    //smallest number of rows worth probing on another thread
+    private static final int MIN_PARTITION_SIZE = 10000;
+
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    private final int[] leftColumns;
+    private final int[] rightColumns;
+
+    private JoinType joinType = JoinType.INNER;
+    private ForkJoinPool pool = null;
+
+    /**
+     * Constructor.
+     *
+     * @param leftColumns zero-based key columns of the left side
+     * @param rightColumns zero-based key columns of the right side, in the
+     * same order
+     */
+    public HashJoin(int[] leftColumns, int[] rightColumns) {
+        if (leftColumns.length == 0 || leftColumns.length != rightColumns.length) {
+            throw new IllegalArgumentException("Left and right keys must have the same number of columns");
+        }
+
+        this.leftColumns = leftColumns.clone();
+        this.rightColumns = rightColumns.clone();
+    }
+
+    /**
+     * Sets the kind of join. The default is INNER.
+     */
+    public void setJoinType(JoinType newValue) {
+        joinType = (newValue == null) ? JoinType.INNER : newValue;
+    }
+
+    /**
+     * Sets the pool to probe partitions on. If null, the join runs on the
+     * calling thread.
+     */
+    public void setPool(ForkJoinPool newValue) {
+        pool = newValue;
+    }
+
+    /**
+     * Joins two GridLists. The result has the column names of both sides;
+     * right names that clash with left names are prefixed with RIGHT_.
+     *
+     * @param left The left side
+     * @param right The right side
+     * @return GridList The joined rows
+     */
+    public GridList join(GridList left, GridList right) {
+        GridList output = join(left.readRows(), left.getNumCols(), right.readRows(), right.getNumCols());
+
+        Map names = new HashMap(left.getColumnNames());
+        int leftWidth = left.getNumCols();
+        for (Object entry : right.getColumnNames().entrySet()) {
+            Map.Entry e = (Map.Entry) entry;
+
+            String name = e.getKey().toString();
+            if (names.containsKey(name)) {
+                name = "RIGHT_" + name;
+            }
+            names.put(name, leftWidth + ((Number) e.getValue()).intValue());
+        }
+        output.setColumnNames(names);
+
+        return output;
+    }
+
+    /**
+     * Joins two ObjectFlatFiles.
+     *
+     * @param left The left side
+     * @param right The right side
+     * @return GridList The joined rows
+     */
+    public GridList join(ObjectFlatFile left, ObjectFlatFile right) {
+        return join(rowsOf(left), left.getNumCols(), rowsOf(right), right.getNumCols());
+    }
+
+    private static List rowsOf(ObjectFlatFile source) {
+        final List rows = new ArrayList(source.getNumRows());
+        source.forEachRow(new RowHandler() {
+            @Override
+            public void handleRow(List row) {
+                rows.add(row);
+            }
+        });
+
+        return rows;
+    }
+
+    private GridList join(List left, int leftWidth, List right, int rightWidth) {
+        //build on the smaller side
+        boolean buildLeft = left.size() < right.size();
+
+        List buildRows = buildLeft ? left : right;
+        int[] buildColumns = buildLeft ? leftColumns : rightColumns;
+        List probeRows = buildLeft ? right : left;
+        int[] probeColumns = buildLeft ? rightColumns : leftColumns;
+
+        log.debug("Building on " + (buildLeft ? "left" : "right") + " side: " + buildRows.size() + " rows");
+
+        BuildTable table = new BuildTable(buildRows, buildColumns);
+
+        int numPartitions = 1;
+        if (pool != null) {
+            numPartitions = Math.min(pool.getParallelism() * PARTITIONS_PER_THREAD, probeRows.size() / MIN_PARTITION_SIZE);
+        }
+        numPartitions = Math.max(1, numPartitions);
+
+        List<Probe> tasks = new ArrayList<>(numPartitions);
+        for (int i = 0; i < numPartitions; i++) {
+            int start = (int) ((long) probeRows.size() * i / numPartitions);
+            int end = (int) ((long) probeRows.size() * (i + 1) / numPartitions);
+            tasks.add(new Probe(table, probeRows, probeColumns, start, end, buildLeft, leftWidth, rightWidth));
+        }
+
+        List<Probe> results = tasks;
+        if (numPartitions > 1) {
+            results = new ArrayList<>(numPartitions);
+            for (Future<Probe> result : pool.invokeAll(tasks)) {
+                results.add(get(result));
+            }
+        } else {
+            tasks.get(0).call();
+        }
+
+        //concatenate partitions in order
+        int size = 0;
+        for (Probe probe : results) {
+            size += probe.output.size();
+        }
+
+        GridList output = new GridList(size);
+        for (Probe probe : results) {
+            for (ArrayList row : probe.output) {
+                output.addRow(row);
+            }
+        }
+
+        //left rows that matched nothing
+        if (buildLeft && joinType == JoinType.LEFT) {
+            BitSet matched = new BitSet(buildRows.size());
+            for (Probe probe : results) {
+                matched.or(probe.matched);
+            }
+
+            for (int i = matched.nextClearBit(0); i < buildRows.size(); i = matched.nextClearBit(i + 1)) {
+                List row = (List) buildRows.get(i);
+                if (row != null) {
+                    output.addRow(combine(row, null, leftWidth, rightWidth));
+                }
+            }
+        }
+
+        return output;
+    }
+
+    private static Probe get(Future<Probe> result) {
+        try {
+            return result.get();
+
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while joining", ie);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ee.getCause();
+            }
+            throw new IllegalStateException("Error joining", ee.getCause());
+        }
+    }
+
+    /**
+     * Returns a new row holding the left values then the right values, each
+     * padded with nulls to its width.
+     */
+    private static ArrayList combine(List left, List right, int leftWidth, int rightWidth) {
+        ArrayList output = new ArrayList(leftWidth + rightWidth);
+
+        append(output, left, leftWidth);
+        append(output, right, rightWidth);
+
+        return output;
+    }
+
+    private static void append(ArrayList output, List row, int width) {
+        int size = (row == null) ? 0 : Math.min(row.size(), width);
+
+        for (int i = 0; i < size; i++) {
+            output.add(row.get(i));
+        }
+        for (int i = size; i < width; i++) {
+            output.add(null);
+        }
+    }
+
+    private static Object valueOf(List row, int column) {
+        return (column < row.size()) ? row.get(column) : null;
+    }
+
+    /**
+     * Returns the hash of a row's key, or 0 if any key column is null (and
+     * the row can never match).
+     */
+    private static int hash(List row, int[] columns) {
+        int h = 1;
+
+        for (int column : columns) {
+            Object value = valueOf(row, column);
+            if (value == null) {
+                return 0;
+            }
+            h = 31 * h + value.hashCode();
+        }
+
+        //spread the bits, and reserve 0 for null keys
+        h *= 0x9E3779B9;
+        h ^= h >>> 16;
+        return (h == 0) ? 1 : h;
+    }
+
+    private static boolean keysEqual(List row1, int[] columns1, List row2, int[] columns2) {
+        for (int i = 0; i < columns1.length; i++) {
+            if (!valueOf(row1, columns1[i]).equals(valueOf(row2, columns2[i]))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * An open-addressing hash table over the rows of the build side. Each
+     * slot holds one distinct key, as the number of its first row; rows that
+     * share a key are chained in row order.
+     */
+    private static class BuildTable {
+
+        private final List rows;
+        private final int[] columns;
+
+        private final int[] slots;   //row number + 1, or 0 if empty
+        private final int[] hashes;  //hash of each slot's key
+        private final int[] tails;   //last row of each slot's chain
+        private final int[] next;    //next row with the same key, or -1
+        private final int mask;
+
+        BuildTable(List rows, int[] columns) {
+            this.rows = rows;
+            this.columns = columns;
+
+            int capacity = Integer.highestOneBit(Math.max(2, rows.size()) * 2 - 1) << 1;
+            slots = new int[capacity];
+            hashes = new int[capacity];
+            tails = new int[capacity];
+            next = new int[rows.size()];
+            mask = capacity - 1;
+
+            for (int i = 0; i < rows.size(); i++) {
+                add(i);
+            }
+        }
+
+        private void add(int rowNum) {
+            next[rowNum] = -1;
+
+            List row = (List) rows.get(rowNum);
+            if (row == null) {
+                return;
+            }
+            int h = hash(row, columns);
+            if (h == 0) {
+                return;
+            }
+
+            int slot = h & mask;
+            while (slots[slot] != 0) {
+                if (hashes[slot] == h && keysEqual(row, columns, (List) rows.get(slots[slot] - 1), columns)) {
+                    next[tails[slot]] = rowNum;
+                    tails[slot] = rowNum;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            slots[slot] = rowNum + 1;
+            hashes[slot] = h;
+            tails[slot] = rowNum;
+        }
+
+        /**
+         * Returns the first build row with the same key as a probe row, or
+         * -1.
+         */
+        int find(List row, int[] probeColumns) {
+            int h = hash(row, probeColumns);
+            if (h == 0) {
+                return -1;
+            }
+
+            int slot = h & mask;
+            while (slots[slot] != 0) {
+                if (hashes[slot] == h && keysEqual(row, probeColumns, (List) rows.get(slots[slot] - 1), columns)) {
+                    return slots[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            return -1;
+        }
+
+        int next(int rowNum) {
+            return next[rowNum];
+        }
+
+        List getRow(int rowNum) {
+            return (List) rows.get(rowNum);
+        }
+    }
+
+    /**
+     * Streams a range of probe rows through the build table.
+     */
+    private class Probe implements Callable<Probe> {
+
+        private final BuildTable table;
+        private final List rows;
+        private final int[] columns;
+        private final int start;
+        private final int end;
+        private final boolean buildLeft;
+        private final int leftWidth;
+        private final int rightWidth;
+
+        private final List<ArrayList> output = new ArrayList<>();
+        private BitSet matched;
+
+        Probe(BuildTable table, List rows, int[] columns, int start, int end, boolean buildLeft,
+                int leftWidth, int rightWidth) {
+            this.table = table;
+            this.rows = rows;
+            this.columns = columns;
+            this.start = start;
+            this.end = end;
+            this.buildLeft = buildLeft;
+            this.leftWidth = leftWidth;
+            this.rightWidth = rightWidth;
+        }
+
+        @Override
+        public Probe call() {
+            boolean trackMatches = buildLeft && joinType == JoinType.LEFT;
+            matched = trackMatches ? new BitSet() : null;
+
+            for (int r = start; r < end; r++) {
+                List row = (List) rows.get(r);
+                if (row == null) {
+                    continue;
+                }
+
+                int match = table.find(row, columns);
+
+                if (match < 0 && !buildLeft && joinType == JoinType.LEFT) {
+                    output.add(combine(row, null, leftWidth, rightWidth));
+                    continue;
+                }
+
+                for (; match >= 0; match = table.next(match)) {
+                    List buildRow = table.getRow(match);
+
+                    if (buildLeft) {
+                        output.add(combine(buildRow, row, leftWidth, rightWidth));
+                        if (trackMatches) {
+                            matched.set(match);
+                        }
+                    } else {
+                        output.add(combine(row, buildRow, leftWidth, rightWidth));
+                    }
+                }
+            }
+
+            return this;
+        }
+    }
+
+}
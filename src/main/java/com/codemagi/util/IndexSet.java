@@ -0,0 +1,128 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ColumnIndexes of one ObjectFlatFile or GridList. The owner calls these
+ * methods as rows are added or changed to keep every index up to date.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+class IndexSet {
+
+    private final List<ColumnIndex> indexes = new ArrayList<>();
+
+    /**
+     * Builds an index over the existing rows and adds it to the set.
+     */
+    <T extends ColumnIndex> T add(T index, List rows) {
+        index.build(rows);
+        indexes.add(index);
+
+        return index;
+    }
+
+    boolean remove(ColumnIndex index) {
+        return indexes.remove(index);
+    }
+
+    void clear() {
+        indexes.clear();
+    }
+
+    boolean isEmpty() {
+        return indexes.isEmpty();
+    }
+
+    /**
+     * Returns the first index on a column, preferring a HashIndex, or null.
+     */
+    ColumnIndex get(int column) {
+        ColumnIndex output = null;
+
+        for (ColumnIndex index : indexes) {
+            if (index.getColumn() == column) {
+                if (index instanceof HashIndex) {
+                    return index;
+                }
+                output = index;
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Indexes a row appended at a row number.
+     */
+    void rowAdded(int rowNum, List row) {
+        for (ColumnIndex index : indexes) {
+            index.add(rowNum, index.valueOf(row));
+        }
+    }
+
+    /**
+     * Indexes every row from a row number to the end.
+     */
+    void rowsAdded(int fromRow, List rows) {
+        for (int i = fromRow; i < rows.size(); i++) {
+            rowAdded(i, (List) rows.get(i));
+        }
+    }
+
+    /**
+     * Returns the indexed values of a row, to pass to rowChanged after the
+     * row has been changed.
+     */
+    Object[] beforeChange(List row) {
+        Object[] output = new Object[indexes.size()];
+
+        for (int i = 0; i < output.length; i++) {
+            output[i] = indexes.get(i).valueOf(row);
+        }
+
+        return output;
+    }
+
+    /**
+     * Re-indexes a row whose indexed values may have changed.
+     */
+    void rowChanged(int rowNum, List row, Object[] oldValues) {
+        for (int i = 0; i < oldValues.length; i++) {
+            ColumnIndex index = indexes.get(i);
+            Object newValue = index.valueOf(row);
+
+            if (oldValues[i] == null ? newValue != null : !oldValues[i].equals(newValue)) {
+                index.remove(rowNum, oldValues[i]);
+                index.add(rowNum, newValue);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds every index, after rows have been reordered or replaced.
+     */
+    void rebuild(List rows) {
+        for (ColumnIndex index : indexes) {
+            index.build(rows);
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+/**
+ * Callback interface for monitoring the progress of a DataLoader load. The
+ * listener is called at a fixed interval while the input is parsed, and once
+ * when the load is finished, rather than once per row.
+ * <P>
+ * During parallel loads, ingestProgress may be called from any of the worker
+ * threads.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public interface IngestListener {
+
+    /**
+     * Listener that ignores all events. This is the default.
+     */
+    public static final IngestListener NONE = new IngestListener() {
+        @Override
+        public void ingestProgress(IngestMetrics metrics) {
+        }
+
+        @Override
+        public void ingestFinished(IngestMetrics metrics) {
+        }
+    };
+
+    /**
+     * Called periodically while the input is being parsed.
+     *
+     * @param metrics Running totals for the load in progress
+     */
+    public void ingestProgress(IngestMetrics metrics);
+
+    /**
+     * Called once when the load is finished, whether or not it succeeded.
+     *
+     * @param metrics Final totals for the load
+     */
+    public void ingestFinished(IngestMetrics metrics);
+
+}
@@ -0,0 +1,157 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running totals for a DataLoader load: rows read, bytes read, conversion
+ * errors and elapsed time. Totals are updated in batches by the loader and
+ * reported to an IngestListener at a fixed interval.
+ * <P>
+ * For memory-mapped input, bytes are counted exactly. For Reader input they
+ * are counted as chars, including one for each line terminator.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class IngestMetrics {
+
+    private final IngestListener listener;
+    private final long intervalNanos;
+
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private final long startTime = System.nanoTime();
+    private volatile long endTime = 0;
+
+    private final AtomicLong nextReport;
+
+    /**
+     * Constructor.
+     *
+     * @param listener IngestListener to report to
+     * @param interval Milliseconds between progress reports
+     */
+    IngestMetrics(IngestListener listener, long interval) {
+        this.listener = (listener == null) ? IngestListener.NONE : listener;
+        this.intervalNanos = Math.max(0, interval) * 1000000L;
+        this.nextReport = new AtomicLong(startTime + intervalNanos);
+    }
+
+    /**
+     * Adds a batch of rows, and reports progress if the interval has passed.
+     */
+    void add(long numRows, long numBytes) {
+        rows.addAndGet(numRows);
+        bytes.addAndGet(numBytes);
+
+        if (listener == IngestListener.NONE) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long next = nextReport.get();
+        if (now - next >= 0 && nextReport.compareAndSet(next, now + intervalNanos)) {
+            listener.ingestProgress(this);
+        }
+    }
+
+    /**
+     * Adds fields that could not be converted.
+     */
+    void addErrors(long numErrors) {
+        errors.addAndGet(numErrors);
+    }
+
+    /**
+     * Stops the clock and reports the final totals.
+     */
+    void finish() {
+        endTime = System.nanoTime();
+        listener.ingestFinished(this);
+    }
+
+    /**
+     * Returns the number of rows read so far, including rows rejected by a
+     * RowFilter.
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * Returns the number of bytes (or chars, for Reader input) read so far.
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Returns the number of fields that could not be converted to the type of
+     * their column.
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Returns the time since the load started, or the duration of the load if
+     * it is finished, in milliseconds.
+     */
+    public long getElapsedMillis() {
+        long end = (endTime == 0) ? System.nanoTime() : endTime;
+
+        return (end - startTime) / 1000000L;
+    }
+
+    /**
+     * Returns true if the load is finished.
+     */
+    public boolean isFinished() {
+        return endTime != 0;
+    }
+
+    /**
+     * Returns the average number of rows read per second.
+     */
+    public double getRowsPerSecond() {
+        return perSecond(getRows());
+    }
+
+    /**
+     * Returns the average number of bytes read per second.
+     */
+    public double getBytesPerSecond() {
+        return perSecond(getBytes());
+    }
+
+    private double perSecond(long count) {
+        long elapsed = getElapsedMillis();
+
+        return (elapsed == 0) ? 0 : count * 1000.0 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "rows: " + getRows() + " (" + Math.round(getRowsPerSecond()) + "/s), bytes: " + getBytes()
+                + " (" + Math.round(getBytesPerSecond()) + "/s), errors: " + getErrors()
+                + ", elapsed: " + getElapsedMillis() + "ms";
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+/**
+ * The kinds of join HashJoin can perform.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public enum JoinType {
+
+    /**
+     * Only pairs of left and right rows with equal keys.
+     */
+    INNER,
+    /**
+     * Every pair of rows with equal keys, plus each left row with no match,
+     * padded with nulls for the right columns.
+     */
+    LEFT;
+
+}
@@ -0,0 +1,170 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+/**
+ * Options that control how DataLoader loads a dataset: which columns are kept,
+ * which rows are kept, and how fields are converted.
+ * <P>
+ * Columns can be selected by number or by header name. Rows are selected by a
+ * RowFilter, which is evaluated while the input is parsed, so rejected rows
+ * and unselected fields are never stored. The filter always sees every column
+ * of the input; the ColumnSchema describes the selected columns, in the order
+ * they were selected.
+ * <P>
+ * An IngestListener can be set to monitor throughput and conversion errors.
+ * <P>
+ * A StringPool can be set to deduplicate String fields with few distinct
+ * values as they are loaded. To store such columns as int codes instead, load
+ * into a ColumnarFlatFile, which dictionary-encodes STRING columns.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class LoadOptions {
+
+    /**
+     * Default number of milliseconds between progress reports.
+     */
+    public static final long DEFAULT_PROGRESS_INTERVAL = 1000;
+
+    private int[] columns = null;
+    private String[] columnNames = null;
+    private RowFilter rowFilter = null;
+    private ColumnSchema schema = null;
+    private IngestListener ingestListener = IngestListener.NONE;
+    private long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+    private StringPool stringPool = null;
+    private int[] pooledColumns = null;
+
+    /**
+     * Default constructor: loads every column of every row as Strings.
+     */
+    public LoadOptions() {
+    }
+
+    /**
+     * Selects the columns to load, by zero-based column number. Each row will
+     * contain these columns, in this order.
+     *
+     * @param newValue Column numbers, or null to load all columns
+     */
+    public void setColumns(int[] newValue) {
+        columns = (newValue == null) ? null : newValue.clone();
+    }
+
+    public int[] getColumns() {
+        return (columns == null) ? null : columns.clone();
+    }
+
+    /**
+     * Selects the columns to load by their name in the header row. Names are
+     * matched ignoring case and surrounding whitespace, and take precedence
+     * over column numbers. Requires the input to have headers.
+     *
+     * @param newValue Column names, or null to select columns by number
+     */
+    public void setColumnNames(String[] newValue) {
+        columnNames = (newValue == null) ? null : newValue.clone();
+    }
+
+    public String[] getColumnNames() {
+        return (columnNames == null) ? null : columnNames.clone();
+    }
+
+    /**
+     * Sets a filter that decides which rows are loaded. Filters used with the
+     * parallel loaders are called from several threads at once.
+     *
+     * @param newValue RowFilter, or null to load all rows
+     */
+    public void setRowFilter(RowFilter newValue) {
+        rowFilter = newValue;
+    }
+
+    public RowFilter getRowFilter() {
+        return rowFilter;
+    }
+
+    /**
+     * Sets the schema used to convert the loaded columns to typed values.
+     *
+     * @param newValue ColumnSchema, or null to leave fields as Strings
+     */
+    public void setSchema(ColumnSchema newValue) {
+        schema = newValue;
+    }
+
+    public ColumnSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Sets the listener that receives progress reports and metrics.
+     *
+     * @param newValue IngestListener, or null for none
+     */
+    public void setIngestListener(IngestListener newValue) {
+        ingestListener = (newValue == null) ? IngestListener.NONE : newValue;
+    }
+
+    public IngestListener getIngestListener() {
+        return ingestListener;
+    }
+
+    /**
+     * Sets the number of milliseconds between progress reports.
+     */
+    public void setProgressInterval(long newValue) {
+        progressInterval = newValue;
+    }
+
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+
+    /**
+     * Sets a pool that String fields are passed through as they are loaded,
+     * after any schema conversion, so that equal values share one instance.
+     * The pool may be shared by parallel loads and by several files.
+     *
+     * @param newValue StringPool, or null to keep every field as parsed
+     */
+    public void setStringPool(StringPool newValue) {
+        stringPool = newValue;
+    }
+
+    public StringPool getStringPool() {
+        return stringPool;
+    }
+
+    /**
+     * Selects the columns whose fields are passed through the StringPool, by
+     * their zero-based position in the loaded rows. Pooling only columns with
+     * few distinct values keeps them from being pushed out of the pool by
+     * columns that rarely repeat.
+     *
+     * @param newValue Column numbers, or null to pool every String field
+     */
+    public void setPooledColumns(int[] newValue) {
+        pooledColumns = (newValue == null) ? null : newValue.clone();
+    }
+
+    public int[] getPooledColumns() {
+        return (pooledColumns == null) ? null : pooledColumns.clone();
+    }
+
+}
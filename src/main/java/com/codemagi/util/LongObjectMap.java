@@ -0,0 +1,270 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from primitive long keys to Object values, using open addressing
+ * with linear probing. Keys and values are stored in two parallel arrays, so
+ * there is no entry object or boxed key per mapping, and get, put and remove
+ * do not allocate (except when the table grows).
+ * <P>
+ * Null values are not stored: putting null removes the key. Instances are not
+ * thread-safe.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class LongObjectMap implements java.io.Serializable {
+
+    /**
+     * The default load factor.
+     */
+    public static final float DEFAULT_LOAD_FACTOR = 0.6f;
+
+    private static final float MAX_LOAD_FACTOR = 0.9f;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    //a slot is empty if its value is null
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+    private int resizeAt;
+
+    private final float loadFactor;
+
+    /**
+     * Constructs an empty map with the default capacity and load factor.
+     */
+    public LongObjectMap() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with room for the specified number of mappings
+     * before it grows.
+     */
+    public LongObjectMap(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Constructs an empty map with room for the specified number of mappings
+     * before it grows, and the specified load factor. Load factors above 0.9
+     * are reduced to 0.9, since linear probing degrades sharply when the table
+     * is nearly full.
+     *
+     * @exception IllegalArgumentException If the capacity is negative or the
+     * load factor is not positive
+     */
+    public LongObjectMap(int initialCapacity, float loadFactor) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal initial capacity: " + initialCapacity);
+        }
+        if (!(loadFactor > 0)) {
+            throw new IllegalArgumentException("Illegal load factor: " + loadFactor);
+        }
+
+        this.loadFactor = Math.min(loadFactor, MAX_LOAD_FACTOR);
+
+        allocate(tableSize(initialCapacity));
+    }
+
+    /**
+     * Returns the number of mappings in the map.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the value for a key, or null if the key is not mapped.
+     */
+    public Object get(long key) {
+        int slot = hash(key) & mask;
+
+        Object value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == key) {
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps a key to a value, or removes the key if the value is null.
+     *
+     * @return Object The previous value for the key, or null
+     */
+    public Object put(long key, Object value) {
+        if (value == null) {
+            return remove(key);
+        }
+
+        int slot = hash(key) & mask;
+
+        Object old;
+        while ((old = values[slot]) != null) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+
+        if (++size > resizeAt) {
+            rehash(values.length * 2);
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @return Object The value the key was mapped to, or null
+     */
+    public Object remove(long key) {
+        int slot = hash(key) & mask;
+
+        Object old;
+        while ((old = values[slot]) != null) {
+            if (keys[slot] == key) {
+                delete(slot);
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * Removes every mapping.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Returns the number of slots in the table. Slots are numbered from 0 to
+     * capacity() - 1 and can be visited with isSlotUsed, slotKey and
+     * slotValue, which is the fastest way to iterate over the map.
+     */
+    public int capacity() {
+        return values.length;
+    }
+
+    public boolean isSlotUsed(int slot) {
+        return values[slot] != null;
+    }
+
+    public long slotKey(int slot) {
+        return keys[slot];
+    }
+
+    public Object slotValue(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Empties a slot and shifts back any later entries of the same probe
+     * sequence, so that no tombstones are needed.
+     */
+    private void delete(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+
+        while (values[next] != null) {
+            int home = hash(keys[next]) & mask;
+
+            //move the entry into the gap unless its home is between the gap and itself
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+
+        values[gap] = null;
+        size--;
+    }
+
+    private void rehash(int newSize) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+
+        allocate(newSize);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int tableSize) {
+        keys = new long[tableSize];
+        values = new Object[tableSize];
+        mask = tableSize - 1;
+        resizeAt = Math.min(tableSize - 1, (int) (tableSize * loadFactor));
+    }
+
+    private int tableSize(int capacity) {
+        long needed = (long) Math.ceil(Math.max(capacity, 2) / (double) loadFactor);
+
+        return (int) Math.min(1 << 30, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    /**
+     * Mixes the bits of a key (the MurmurHash3 finalizer), since row and
+     * column keys are highly regular.
+     */
+    static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+
+        return (int) key;
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Parses delimited files by memory-mapping them and scanning the mapped bytes
+ * for delimiters and line terminators directly. Field boundaries are recorded
+ * as byte offsets, and field values are only decoded into Strings when they
+ * are requested from the DataRecord passed to the RecordHandler.
+ * <P>
+ * Fields are split exactly as StringChopper splits them: every occurrence of
+ * the delimiter starts a new field, and empty fields are returned as "".
+ * <P>
+ * Instances are not thread-safe. Use one parser per thread.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class MappedDelimitedParser extends MappedLineScanner {
+
+    private final byte[] delimiter;
+
+    private final MappedRecord record = new MappedRecord();
+
+    /**
+     * Constructs a parser for files in the platform default Charset.
+     *
+     * @param delimiter The delimiter that separates fields, such as "," or
+     * "\t"
+     */
+    public MappedDelimitedParser(String delimiter) {
+        this(delimiter, Charset.defaultCharset());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param delimiter The delimiter that separates fields, such as "," or
+     * "\t"
+     * @param charset The Charset the file is encoded in
+     * @exception IllegalArgumentException If the charset is not supported for
+     * byte-level scanning
+     */
+    public MappedDelimitedParser(String delimiter, Charset charset) throws IllegalArgumentException {
+        super(charset);
+
+        this.delimiter = (delimiter == null) ? new byte[0] : delimiter.getBytes(charset);
+    }
+
+    @Override
+    protected void handleLine(ByteBuffer buf, int start, int end) {
+        record.reset(buf);
+
+        int delimiterLength = delimiter.length;
+        if (delimiterLength > 0) {
+            byte first = delimiter[0];
+
+            int fieldStart = start;
+            int i = start;
+            while (i + delimiterLength <= end) {
+                if (buf.get(i) == first && isDelimiterAt(buf, i)) {
+                    record.addField(fieldStart, i);
+                    i += delimiterLength;
+                    fieldStart = i;
+                } else {
+                    i++;
+                }
+            }
+            record.addField(fieldStart, end);
+        }
+
+        handler.handleRecord(record);
+    }
+
+    /**
+     * Returns true if the full delimiter occurs at the specified index.
+     */
+    private boolean isDelimiterAt(ByteBuffer buf, int index) {
+        for (int j = 1; j < delimiter.length; j++) {
+            if (buf.get(index + j) != delimiter[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * DataRecord backed by byte offsets into the mapped buffer. Reused for
+     * every line.
+     */
+    private class MappedRecord implements DataRecord {
+
+        private ByteBuffer buf;
+
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int numFields = 0;
+
+        void reset(ByteBuffer newBuf) {
+            buf = newBuf;
+            numFields = 0;
+        }
+
+        void addField(int start, int end) {
+            if (numFields == starts.length) {
+                starts = java.util.Arrays.copyOf(starts, numFields * 2);
+                ends = java.util.Arrays.copyOf(ends, numFields * 2);
+            }
+            starts[numFields] = start;
+            ends[numFields] = end;
+            numFields++;
+        }
+
+        @Override
+        public int getFieldCount() {
+            return numFields;
+        }
+
+        @Override
+        public String getField(int index) {
+            if (index < 0 || index >= numFields) {
+                return "";
+            }
+
+            return decode(buf, starts[index], ends[index]);
+        }
+
+        @Override
+        public CharSequence getCharSequence(int index) {
+            if (index < 0 || index >= numFields) {
+                return "";
+            }
+
+            return new ByteSlice(buf, starts[index], ends[index], charset);
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Parses fixed-width files by memory-mapping them. Each line is split into
+ * columns of the widths given in the data map, exactly as
+ * DataLoader.loadFixedWidthFile splits them: columns that extend past the end
+ * of a line are truncated, and columns that start past the end are "".
+ * <P>
+ * Columns are located by byte offset within the mapped line, so nothing is
+ * copied or decoded until a field is requested: getCharSequence returns a
+ * ByteSlice view of the field, and getField decodes only that field. Lines
+ * containing multi-byte characters are decoded whole and split by character
+ * offset instead. Use setColumns to project a subset of the columns.
+ * <P>
+ * Instances are not thread-safe. Use one parser per thread.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class MappedFixedWidthParser extends MappedLineScanner {
+
+    private final int[] dataMap;
+
+    //starting character offset of each column
+    private final int[] offsets;
+
+    //true if every character of the charset is encoded in one byte
+    private final boolean singleByte;
+
+    //columns of the data map to return, in order
+    private int[] columns;
+
+    private final FixedWidthRecord record = new FixedWidthRecord();
+
+    /**
+     * Constructs a parser for files in the platform default Charset.
+     *
+     * @param dataMap An array of ints that specify the width of each column
+     */
+    public MappedFixedWidthParser(int[] dataMap) {
+        this(dataMap, Charset.defaultCharset());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param dataMap An array of ints that specify the width of each column
+     * @param charset The Charset the file is encoded in
+     * @exception IllegalArgumentException If the charset is not supported for
+     * byte-level scanning
+     */
+    public MappedFixedWidthParser(int[] dataMap, Charset charset) throws IllegalArgumentException {
+        super(charset);
+
+        this.dataMap = dataMap.clone();
+        this.singleByte = charset.newEncoder().maxBytesPerChar() == 1.0f;
+
+        offsets = new int[dataMap.length];
+        for (int i = 1; i < dataMap.length; i++) {
+            offsets[i] = offsets[i - 1] + dataMap[i - 1];
+        }
+
+        setColumns(null);
+    }
+
+    /**
+     * Selects the columns of the data map that records will contain. Field i
+     * of each record is column columns[i] of the line; other columns are never
+     * read.
+     *
+     * @param columns zero-based column numbers, or null for all columns
+     * @exception IllegalArgumentException If a column is not in the data map
+     */
+    public void setColumns(int[] columns) throws IllegalArgumentException {
+        if (columns == null) {
+            this.columns = new int[dataMap.length];
+            for (int i = 0; i < dataMap.length; i++) {
+                this.columns[i] = i;
+            }
+            return;
+        }
+
+        for (int column : columns) {
+            if (column < 0 || column >= dataMap.length) {
+                throw new IllegalArgumentException("Column " + column + " is not in the data map");
+            }
+        }
+        this.columns = columns.clone();
+    }
+
+    @Override
+    protected void handleLine(ByteBuffer buf, int start, int end) {
+        record.reset(buf, start, end);
+
+        handler.handleRecord(record);
+    }
+
+    /**
+     * DataRecord that locates columns by offset within the line as they are
+     * requested. Reused for every line.
+     */
+    private class FixedWidthRecord implements DataRecord {
+
+        private ByteBuffer buf;
+        private int start;
+        private int end;
+
+        //-1 until checked, then 1 if byte offsets are character offsets
+        private int byteAligned;
+
+        //the decoded line, for lines that are not byte aligned
+        private String line;
+
+        void reset(ByteBuffer newBuf, int newStart, int newEnd) {
+            buf = newBuf;
+            start = newStart;
+            end = newEnd;
+            byteAligned = singleByte ? 1 : -1;
+            line = null;
+        }
+
+        /**
+         * Returns true if each character of the line is one byte, so columns
+         * can be located by byte offset.
+         */
+        private boolean isByteAligned() {
+            if (byteAligned < 0) {
+                byteAligned = 1;
+                for (int i = start; i < end; i++) {
+                    if (buf.get(i) < 0) {
+                        byteAligned = 0;
+                        break;
+                    }
+                }
+            }
+            return byteAligned == 1;
+        }
+
+        private String getLine() {
+            if (line == null) {
+                line = decode(buf, start, end);
+            }
+            return line;
+        }
+
+        @Override
+        public int getFieldCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getField(int index) {
+            if (index < 0 || index >= columns.length) {
+                return "";
+            }
+
+            int column = columns[index];
+
+            if (isByteAligned()) {
+                int length = end - start;
+                int from = start + Math.min(offsets[column], length);
+                int to = start + Math.min(offsets[column] + dataMap[column], length);
+
+                return decode(buf, from, to);
+            }
+
+            String s = getLine();
+            int length = s.length();
+
+            return s.substring(Math.min(offsets[column], length), Math.min(offsets[column] + dataMap[column], length));
+        }
+
+        @Override
+        public CharSequence getCharSequence(int index) {
+            if (index < 0 || index >= columns.length) {
+                return "";
+            }
+
+            if (!isByteAligned()) {
+                return getField(index);
+            }
+
+            int column = columns[index];
+            int length = end - start;
+            int from = start + Math.min(offsets[column], length);
+            int to = start + Math.min(offsets[column] + dataMap[column], length);
+
+            return new ByteSlice(buf, from, to, charset);
+        }
+    }
+
+}
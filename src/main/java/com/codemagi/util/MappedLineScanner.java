@@ -0,0 +1,379 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Base class for parsers that scan a file for lines by memory-mapping it and
+ * working directly on the mapped bytes. The file is mapped in windows, so files
+ * of any size can be scanned without copying them onto the heap.
+ * <P>
+ * Lines are terminated by LF, CR or CR+LF, the same as
+ * BufferedReader.readLine(). Subclasses receive the byte range of each line
+ * (without the terminator), decide what, if anything, to materialize, and pass
+ * a DataRecord for the line to the current RecordHandler.
+ * <P>
+ * Only charsets in which line terminators and ASCII characters are encoded as
+ * single bytes that cannot appear inside a multi-byte sequence are supported
+ * (UTF-8 and single-byte charsets such as ISO-8859-1). Use
+ * <code>isSupported(Charset)</code> to check before scanning.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public abstract class MappedLineScanner {
+
+    //default size of each mapped window of the file
+    private static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+
+    //largest window that can be mapped as a single buffer
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    protected final Charset charset;
+
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+
+    //handler receiving records for the parse in progress
+    protected RecordHandler handler;
+
+    //file offset just past the line being handled
+    private long lineEndOffset = 0;
+
+    //reusable buffer for decoding bytes into Strings
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Constructor.
+     *
+     * @param charset The Charset the file is encoded in
+     * @exception IllegalArgumentException If the charset is not supported for
+     * byte-level scanning
+     */
+    protected MappedLineScanner(Charset charset) throws IllegalArgumentException {
+        if (!isSupported(charset)) {
+            throw new IllegalArgumentException("Charset " + charset + " is not supported for byte-level scanning");
+        }
+        this.charset = charset;
+    }
+
+    /**
+     * Returns true if files in the specified Charset can be scanned at the byte
+     * level: UTF-8, or any single-byte charset that encodes ASCII characters as
+     * themselves.
+     */
+    public static boolean isSupported(Charset charset) {
+        if (charset == null) {
+            return false;
+        }
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return true;
+        }
+        if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1.0f) {
+            return false;
+        }
+
+        return Arrays.equals("\r\n\t ,|\"".getBytes(charset), "\r\n\t ,|\"".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Sets the size in bytes of each mapped window of the file. Lines longer
+     * than the window cause it to grow as needed.
+     */
+    public void setWindowSize(int newValue) {
+        windowSize = Math.max(1, Math.min(newValue, MAX_WINDOW_SIZE));
+    }
+
+    /**
+     * Parses a file, passing a fully materialized row to the RowHandler for
+     * each line.
+     *
+     * @param file The file to parse
+     * @param hasHeaders If true, the first line of the file will be skipped
+     * @param handler RowHandler to receive each parsed row
+     * @return long The number of rows passed to the handler
+     * @throws IOException If the file cannot be read
+     */
+    public long parse(File file, boolean hasHeaders, RowHandler handler) throws IOException {
+        return parseRecords(file, hasHeaders, new RowHandlerAdapter(handler));
+    }
+
+    /**
+     * Parses a file, passing a lazy DataRecord to the RecordHandler for each
+     * line.
+     *
+     * @param file The file to parse
+     * @param hasHeaders If true, the first line of the file will be skipped
+     * @param handler RecordHandler to receive each parsed record
+     * @return long The number of records passed to the handler
+     * @throws IOException If the file cannot be read
+     */
+    public long parseRecords(File file, boolean hasHeaders, RecordHandler handler) throws IOException {
+        this.handler = handler;
+        try {
+            return scan(file, hasHeaders);
+        } finally {
+            this.handler = null;
+        }
+    }
+
+    /**
+     * Parses the lines in a byte range of a file, passing a lazy DataRecord to
+     * the RecordHandler for each line. The range must start at the beginning
+     * of a line and end at the end of a line.
+     *
+     * @param channel FileChannel to map the file from
+     * @param start Byte offset of the first line in the range
+     * @param end Byte offset of the end of the range (exclusive)
+     * @param skipFirstLine If true, the first line in the range is skipped
+     * @param handler RecordHandler to receive each parsed record
+     * @return long The number of records passed to the handler
+     * @throws IOException If the file cannot be read
+     */
+    public long parseRecords(FileChannel channel, long start, long end, boolean skipFirstLine, RecordHandler handler)
+            throws IOException {
+        this.handler = handler;
+        try {
+            return scan(channel, start, end, skipFirstLine);
+        } finally {
+            this.handler = null;
+        }
+    }
+
+    /**
+     * Returns the offset in the file just past the end of the line currently
+     * being handled, including its line terminator. Handlers can use this to
+     * track how many bytes of the file have been processed.
+     */
+    public long getLineEndOffset() {
+        return lineEndOffset;
+    }
+
+    /**
+     * Scans every line of a file.
+     *
+     * @param file The file to scan
+     * @param skipFirstLine If true, the first line (ie headers) is skipped
+     * @return long The number of lines passed to handleLine
+     * @throws IOException If the file cannot be read
+     */
+    public long scan(File file, boolean skipFirstLine) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+
+            return scan(channel, 0, channel.size(), skipFirstLine);
+        }
+    }
+
+    /**
+     * Scans the lines in a byte range of a file. The start of the range must
+     * be the start of a line and the end of the range must be the end of a
+     * line (or the end of the file).
+     *
+     * @param channel FileChannel to map the file from
+     * @param start Byte offset of the first line in the range
+     * @param end Byte offset of the end of the range (exclusive)
+     * @param skipFirstLine If true, the first line in the range is skipped
+     * @return long The number of lines passed to handleLine
+     * @throws IOException If the file cannot be read
+     */
+    public long scan(FileChannel channel, long start, long end, boolean skipFirstLine) throws IOException {
+
+        long numLines = 0;
+        boolean skip = skipFirstLine;
+
+        int currentWindowSize = windowSize;
+        long position = start;
+
+        while (position < end) {
+            long windowEnd = Math.min(end, position + currentWindowSize);
+            boolean lastWindow = (windowEnd == end);
+
+            ByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, windowEnd - position);
+            int limit = buf.limit();
+
+            int lineStart = 0;
+            int i = 0;
+            while (i < limit) {
+                byte b = buf.get(i);
+
+                if (b != LF && b != CR) {
+                    i++;
+                    continue;
+                }
+
+                int lineEnd = i;
+                if (b == CR) {
+                    //a CR at the end of a window may be the first half of a CR+LF
+                    if (i + 1 == limit && !lastWindow) {
+                        break;
+                    }
+                    if (i + 1 < limit && buf.get(i + 1) == LF) {
+                        i++;
+                    }
+                }
+                i++;
+
+                lineEndOffset = position + i;
+
+                if (skip) {
+                    skip = false;
+                } else {
+                    handleLine(buf, lineStart, lineEnd);
+                    numLines++;
+                }
+                lineStart = i;
+            }
+
+            if (lastWindow && lineStart < limit && i >= limit) {
+                //final line without a terminator
+                lineEndOffset = position + limit;
+
+                if (skip) {
+                    skip = false;
+                } else {
+                    handleLine(buf, lineStart, limit);
+                    numLines++;
+                }
+                lineStart = limit;
+            }
+
+            if (lineStart == 0) {
+                //a single line fills the whole window: grow the window
+                if (currentWindowSize >= MAX_WINDOW_SIZE) {
+                    throw new IOException("Line at offset " + position + " is too long to map");
+                }
+                currentWindowSize = (int) Math.min((long) currentWindowSize * 2, MAX_WINDOW_SIZE);
+            }
+
+            position += lineStart;
+        }
+
+        return numLines;
+    }
+
+    /**
+     * Splits a file into byte ranges of roughly equal size, each of which
+     * starts at the beginning of a line and ends at the end of a line. The
+     * ranges can then be scanned independently, eg: in parallel.
+     *
+     * @param channel FileChannel of the file to split
+     * @param numRanges The desired number of ranges. Fewer may be returned if
+     * the file does not contain enough lines.
+     * @return long[] Range boundaries: range k runs from element k (inclusive)
+     * to element k + 1 (exclusive). The first element is always 0 and the last
+     * is always the size of the file.
+     * @throws IOException If the file cannot be read
+     */
+    public static long[] splitLines(FileChannel channel, int numRanges) throws IOException {
+        long size = channel.size();
+        numRanges = (int) Math.max(1, Math.min(numRanges, size));
+
+        long[] bounds = new long[numRanges + 1];
+        int numBounds = 1;
+
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+
+        for (int k = 1; k < numRanges; k++) {
+            long target = Math.max(size * k / numRanges, bounds[numBounds - 1]);
+            long boundary = nextLineStart(channel, target, size, buf);
+
+            if (boundary >= size) {
+                break;
+            }
+            if (boundary > bounds[numBounds - 1]) {
+                bounds[numBounds++] = boundary;
+            }
+        }
+        bounds[numBounds++] = size;
+
+        return Arrays.copyOf(bounds, numBounds);
+    }
+
+    /**
+     * Returns the offset of the start of the first line that begins after the
+     * specified position, or the size of the file if there is none.
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer buf)
+            throws IOException {
+
+        long offset = position;
+        boolean afterCR = false;
+
+        while (offset < size) {
+            buf.clear();
+            int read = channel.read(buf, offset);
+            if (read <= 0) {
+                break;
+            }
+
+            for (int i = 0; i < read; i++) {
+                byte b = buf.get(i);
+                if (afterCR) {
+                    //the line ended with a CR: skip the LF of a CR+LF pair
+                    return (b == LF) ? offset + i + 1 : offset + i;
+                }
+                if (b == LF) {
+                    return offset + i + 1;
+                }
+                if (b == CR) {
+                    afterCR = true;
+                }
+            }
+            offset += read;
+        }
+
+        return size;
+    }
+
+    /**
+     * Called once for each line scanned.
+     *
+     * @param buf Buffer containing the line. Only valid for the duration of
+     * the call.
+     * @param start Index of the first byte of the line
+     * @param end Index of the end of the line (exclusive), not including the
+     * line terminator
+     */
+    protected abstract void handleLine(ByteBuffer buf, int start, int end);
+
+    /**
+     * Decodes a range of bytes from a buffer into a String.
+     */
+    protected String decode(ByteBuffer buf, int start, int end) {
+        int length = end - start;
+        if (length <= 0) {
+            return "";
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buf.get(start, scratch, 0, length);
+
+        return new String(scratch, 0, length, charset);
+    }
+
+}
@@ -15,8 +15,13 @@
  */
 package com.codemagi.util;
 
-import java.io.RandomAccessFile;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -41,6 +46,9 @@ public class ObjectFlatFile implements java.io.Serializable {
     private List rows;
     private List currentRow;
 
+    //column indexes, created on demand. Not serialized.
+    private transient IndexSet indexes;
+
     //options
     private boolean unquote = false;
     private boolean trim = false;
@@ -111,13 +119,17 @@ public class ObjectFlatFile implements java.io.Serializable {
      */
     public void addRow(List newRow) {
         rows.add(newRow);
+
+        if (indexes != null) {
+            indexes.rowAdded(rows.size() - 1, newRow);
+        }
     }
 
     /**
      * Adds a new row (new ArrayList) to the end of the FlatFile
      */
     public void addRow() {
-        rows.add(new ArrayList());
+        addRow(new ArrayList());
     }
 
     /**
@@ -278,6 +290,26 @@ public class ObjectFlatFile implements java.io.Serializable {
         return null;
     }
 
+    public Long getLong(int row, int column) {
+        Object output = getItem(row, column);
+
+        if (output instanceof Long) {
+            return (Long) output;
+        }
+
+        return null;
+    }
+
+    public Double getDouble(int row, int column) {
+        Object output = getItem(row, column);
+
+        if (output instanceof Double) {
+            return (Double) output;
+        }
+
+        return null;
+    }
+
     public Date getDate(int row, int column) {
         Object output = getItem(row, column);
 
@@ -330,62 +362,71 @@ public class ObjectFlatFile implements java.io.Serializable {
         List rowToSet = getRow(row);
         log.debug("ROW TO SET: " + rowToSet);
 
+        Object[] oldValues = (indexes == null) ? null : indexes.beforeChange(rowToSet);
+
         //if there are not enough items, add blanks ("") until there are
         while (getNumCols(row) <= column) {
             rowToSet.add("");
         }
         rowToSet.set(column, value);
 
+        if (indexes != null) {
+            indexes.rowChanged(row, rowToSet, oldValues);
+        }
+
     }
 
     /**
-     * Outputs this FlatFile object to the filesystem
+     * Outputs this FlatFile object to the filesystem, in the platform default
+     * Charset, without quoting fields.
      *
      * @param filename The full filename of the output file
      * @param delimiter The delimiter to separate values
      * @return boolean True if the file output completed successfully
      */
     public boolean toFile(String filename, String delimiter) {
+        return toFile(filename, delimiter, Charset.defaultCharset(), QuotePolicy.NONE);
+    }
 
-        try {
-            //create a new file for read/write
-            RandomAccessFile output = new RandomAccessFile(filename, "rw");
+    /**
+     * Outputs this FlatFile object to the filesystem. Any existing file is
+     * replaced.
+     *
+     * @param filename The full filename of the output file
+     * @param delimiter The delimiter to separate values
+     * @param charset The Charset to encode the file with
+     * @param quotePolicy Which fields to enclose in quotes
+     * @return boolean True if the file output completed successfully
+     */
+    public boolean toFile(String filename, String delimiter, Charset charset, QuotePolicy quotePolicy) {
 
-            Iterator rowsI = rows.iterator();
-            while (rowsI.hasNext()) {
-                List currentRow = (List) rowsI.next();
+        try (DelimitedWriter output = new DelimitedWriter(new FileOutputStream(filename), charset, delimiter)) {
+            output.setQuotePolicy(quotePolicy);
 
-                if (currentRow == null) {
-                    continue;
-                }
+            write(output);
 
-                Iterator colsI = currentRow.iterator();
-                while (colsI.hasNext()) {
-                    Object currentItem = colsI.next();
+            return true;
 
-                    //apply transformations if asked
-                    applyTransformations(currentItem);
+        } catch (Exception e) {
+            log.debug("", e);
+        }
 
-                    //make sure cell is not null or writeBytes will choke
-                    if (currentItem == null) {
-                        if (returnNulls) {
-                            currentItem = "null";
-                        } else {
-                            currentItem = "";
-                        }
-                    }
+        return false;
 
-                    //write the cell to output file 
-                    output.writeBytes(currentItem.toString());
+    }
 
-                    if (colsI.hasNext()) {
-                        output.writeBytes(delimiter);
-                    }
-                }
+    /**
+     * Writes this FlatFile to the filesystem as a binary snapshot, which can be
+     * reloaded with Snapshot. Any existing file is replaced.
+     *
+     * @param filename The full filename of the output file
+     * @param compress True to compress the snapshot
+     * @return boolean True if the file output completed successfully
+     */
+    public boolean toSnapshot(String filename, boolean compress) {
 
-                //output newline
-                output.writeBytes(System.getProperty("line.separator"));
-            }
+        try {
+            Snapshot.write(this, new File(filename), compress);
 
             return true;
 
@@ -397,6 +438,34 @@ public class ObjectFlatFile implements java.io.Serializable {
 
     }
 
+    /**
+     * Writes every row of this FlatFile to a DelimitedWriter. The writer is
+     * not flushed or closed.
+     *
+     * @param output DelimitedWriter to write rows to
+     * @throws IOException If the output cannot be written
+     */
+    public void write(DelimitedWriter output) throws IOException {
+
+        for (Object row : rows) {
+            List currentRow = (List) row;
+
+            if (currentRow == null) {
+                continue;
+            }
+
+            for (Object currentItem : currentRow) {
+                if (currentItem == null && returnNulls) {
+                    currentItem = "null";
+                }
+
+                output.writeField(currentItem);
+            }
+
+            output.endRow();
+        }
+    }
+
     /**
      * Outputs this FlatFile object to a delimited String. Rows will be
      * separated by a System specific lne separator (the result of:
@@ -486,5 +555,171 @@ public class ObjectFlatFile implements java.io.Serializable {
      */
     public void sort(Comparator c) {
         Collections.sort(rows, c);
+
+        if (indexes != null) {
+            indexes.rebuild(rows);
+        }
+    }
+
+    /**
+     * Sorts the rows ascending on one or more key columns.
+     *
+     * @param columns zero-based key column numbers, most significant first
+     */
+    public void sort(int[] columns) {
+        sort(new ColumnComparator(columns));
+    }
+
+    /**
+     * Creates a hash index on a column, for fast equality lookups. The index
+     * is kept up to date as rows are added, items are set, and rows are
+     * sorted.
+     *
+     * @param column zero-based column number to index
+     * @return HashIndex The new index
+     */
+    public HashIndex createHashIndex(int column) {
+        return getIndexes().add(new HashIndex(column), rows);
+    }
+
+    /**
+     * Creates a sorted index on a column, for lookups and range queries. The
+     * index is kept up to date as rows are added, items are set, and rows are
+     * sorted.
+     *
+     * @param column zero-based column number to index
+     * @return SortedIndex The new index
+     */
+    public SortedIndex createSortedIndex(int column) {
+        return getIndexes().add(new SortedIndex(column), rows);
+    }
+
+    /**
+     * Removes an index created on this FlatFile, so that it is no longer
+     * maintained.
+     *
+     * @return boolean True if the index was removed
+     */
+    public boolean dropIndex(ColumnIndex index) {
+        return indexes != null && indexes.remove(index);
+    }
+
+    /**
+     * Removes every index created on this FlatFile.
+     */
+    public void dropIndexes() {
+        indexes = null;
+    }
+
+    /**
+     * Returns the numbers of the rows whose column equals a value. Uses an
+     * index on the column if there is one, otherwise scans every row.
+     *
+     * @param column zero-based column number
+     * @param value The value to look for. May be null.
+     * @return int[] Row numbers in ascending order
+     */
+    public int[] findRows(int column, Object value) {
+        ColumnIndex index = (indexes == null) ? null : indexes.get(column);
+        if (index != null) {
+            return index.find(value);
+        }
+
+        int[] output = new int[16];
+        int count = 0;
+        int i = 0;
+        for (Object row1 : rows) {
+            List row = (List) row1;
+            Object item = (row != null && column < row.size()) ? row.get(column) : null;
+            if (value == null ? item == null : value.equals(item)) {
+                if (count == output.length) {
+                    output = Arrays.copyOf(output, count * 2);
+                }
+                output[count++] = i;
+            }
+            i++;
+        }
+
+        return Arrays.copyOf(output, count);
+    }
+
+    /**
+     * Replaces the Strings in some columns with their instances from a
+     * StringPool, so that equal values share one instance. Worthwhile for
+     * columns with few distinct values.
+     *
+     * @param pool StringPool to deduplicate with
+     * @param columns zero-based column numbers, or null for every column
+     * @return int The number of cells replaced with a pooled instance
+     */
+    public int dedupStrings(StringPool pool, int[] columns) {
+        int output = 0;
+
+        for (Object row1 : rows) {
+            List row = (List) row1;
+            if (row == null) {
+                continue;
+            }
+
+            int numColumns = (columns == null) ? row.size() : columns.length;
+            for (int i = 0; i < numColumns; i++) {
+                int column = (columns == null) ? i : columns[i];
+                if (column < 0 || column >= row.size()) {
+                    continue;
+                }
+
+                Object value = row.get(column);
+                if (value instanceof String) {
+                    String pooled = pool.intern((String) value);
+                    if (pooled != value) {
+                        row.set(column, pooled);
+                        output++;
+                    }
+                }
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns a Spliterator over the rows, as RowViews that read the rows in
+     * place. It splits into contiguous ranges of rows with exact sizes, for
+     * use with parallel streams. Rows must not be added or removed while it
+     * is in use.
+     */
+    public Spliterator<RowView> rowSpliterator() {
+        return new RowSpliterator(rows);
+    }
+
+    /**
+     * Returns a Stream of the rows, as RowViews. For example, to sum a column
+     * in parallel:
+     * <pre>
+     * long total = flatFile.rows(true).mapToLong(row -&gt; row.getInt(2, 0)).sum();
+     * </pre>
+     *
+     * @param parallel True for a parallel Stream
+     */
+    public Stream<RowView> rows(boolean parallel) {
+        return StreamSupport.stream(rowSpliterator(), parallel);
+    }
+
+    private IndexSet getIndexes() {
+        if (indexes == null) {
+            indexes = new IndexSet();
+        }
+        return indexes;
+    }
+
+    /**
+     * Passes each row, untransformed, to a RowHandler.
+     */
+    void forEachRow(RowHandler handler) {
+        for (Object row : rows) {
+            if (row != null) {
+                handler.handleRow((List) row);
+            }
+        }
     }
 }
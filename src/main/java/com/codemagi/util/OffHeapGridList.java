@@ -0,0 +1,635 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only copy of a GridList that keeps its data outside the Java heap,
+ * in direct ByteBuffers, so that large lookup grids are not scanned or copied
+ * by the garbage collector.
+ * <P>
+ * Each column is stored according to the type of its values. Columns holding
+ * only Integers, Longs, Floats, Doubles, Booleans or Dates are stored as
+ * fixed-width primitives. Columns holding only Strings are stored as UTF-8,
+ * each value prefixed with its length, with an offset per row. Missing and
+ * null cells are marked in a bitmap, and the length of each row is kept if
+ * the rows differ in length. Columns that mix types, or hold any other kind
+ * of Object, stay on the heap.
+ * <P>
+ * The getters behave as they do on GridList. The primitive getters, such as
+ * getInt(row, column, defaultValue), read without allocating. An
+ * OffHeapGridList is safe for concurrent readers. Its memory is released when
+ * it is garbage collected, and counts against -XX:MaxDirectMemorySize.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class OffHeapGridList {
+
+    //largest single buffer of String data
+    private static final int MAX_CHUNK_SIZE = 1 << 26;
+
+    private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    private final Column[] columns;
+    private final Map columnNames;
+    private final int numRows;
+
+    //the length of each row, or null if every row has every column
+    private final ByteBuffer rowSizes;
+
+    /**
+     * Constructs an OffHeapGridList holding a copy of the data in a GridList.
+     *
+     * @param source The GridList to copy
+     * @throws IllegalArgumentException If a column has too many rows to fit
+     * in a single buffer
+     */
+    public OffHeapGridList(GridList source) {
+        List rows = source.readRows();
+
+        numRows = rows.size();
+        columnNames = new HashMap(source.getColumnNames());
+
+        int numCols = source.getNumCols();
+        for (Object value : columnNames.values()) {
+            numCols = Math.max(numCols, (Integer) value + 1);
+        }
+
+        columns = new Column[numCols];
+        for (int i = 0; i < numCols; i++) {
+            columns[i] = buildColumn(rows, i);
+        }
+
+        rowSizes = buildRowSizes(rows, numCols);
+    }
+
+    /**
+     * Returns the number of data rows.
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * Returns the number of columns.
+     */
+    public int getNumCols() {
+        return columns.length;
+    }
+
+    /**
+     * Returns the column names (in upper case), mapped to their column
+     * numbers.
+     */
+    public Map getColumnNames() {
+        return Collections.unmodifiableMap(columnNames);
+    }
+
+    /**
+     * Returns the column number (zero-based) for the specified column name, or
+     * 0 if there is no such column, as GridList does.
+     */
+    public int getColumnNumber(String columnName) {
+        if (Utils.isEmpty(columnName)) {
+            return 0;
+        }
+
+        Integer theInt = (Integer) columnNames.get(columnName.toUpperCase());
+
+        return (theInt == null) ? 0 : theInt;
+    }
+
+    /**
+     * Returns true if a cell is null or does not exist.
+     */
+    public boolean isNull(int row, int column) {
+        return !exists(row, column) || columns[column].isNull(row);
+    }
+
+    /**
+     * Gets an Object from a specified position, or "" if the position does not
+     * exist, including cells past the end of a short row. Values stored off
+     * the heap are returned as new Objects.
+     */
+    public Object getItem(int row, int column) {
+        if (!exists(row, column) || column >= rowSize(row)) {
+            return "";
+        }
+
+        Column col = columns[column];
+
+        return col.isNull(row) ? null : col.get(row);
+    }
+
+    public Object getItem(int row, String columnName) {
+        return getItem(row, getColumnNumber(columnName));
+    }
+
+    public String getString(int row, int column) {
+        Object output = getItem(row, column);
+
+        if (output instanceof String) {
+            return (String) output;
+        }
+
+        return (output != null) ? output.toString() : "";
+    }
+
+    public String getString(int row, String columnName) {
+        return getString(row, getColumnNumber(columnName));
+    }
+
+    public Integer getInteger(int row, int column) {
+        Object output = getItem(row, column);
+
+        if (output instanceof Integer) {
+            return (Integer) output;
+        }
+
+        return null;
+    }
+
+    public Integer getInteger(int row, String columnName) {
+        return getInteger(row, getColumnNumber(columnName));
+    }
+
+    /**
+     * Returns an Integer cell as a primitive int, or a default if the cell is
+     * null or not an Integer.
+     */
+    public int getInt(int row, int column, int defaultValue) {
+        if (isNull(row, column) || !(columns[column] instanceof IntColumn)) {
+            return defaultValue;
+        }
+
+        return ((IntColumn) columns[column]).getInt(row);
+    }
+
+    public Float getFloat(int row, int column) {
+        Object output = getItem(row, column);
+
+        if (output instanceof Float) {
+            return (Float) output;
+        } else if (output instanceof String) {
+            try {
+                return Float.parseFloat((String) output);
+            } catch (Exception e) {
+                //nada
+            }
+        }
+
+        return null;
+    }
+
+    public Float getFloat(int row, String columnName) {
+        return getFloat(row, getColumnNumber(columnName));
+    }
+
+    public Double getDouble(int row, int column) {
+        Object output = getItem(row, column);
+
+        if (output instanceof Double) {
+            return (Double) output;
+        } else if (output instanceof String) {
+            try {
+                return Double.parseDouble((String) output);
+            } catch (Exception e) {
+                //nada
+            }
+        }
+
+        return null;
+    }
+
+    public Double getDouble(int row, String columnName) {
+        return getDouble(row, getColumnNumber(columnName));
+    }
+
+    /**
+     * Returns a Double cell as a primitive double, or a default if the cell is
+     * null or not a Double.
+     */
+    public double getDouble(int row, int column, double defaultValue) {
+        if (isNull(row, column) || !(columns[column] instanceof DoubleColumn)) {
+            return defaultValue;
+        }
+
+        return ((DoubleColumn) columns[column]).getDouble(row);
+    }
+
+    public Date getDate(int row, int column) {
+        Object output = getItem(row, column);
+
+        if (output instanceof Date) {
+            return (Date) output;
+        }
+
+        return null;
+    }
+
+    public Date getDate(int row, String columnName) {
+        return getDate(row, getColumnNumber(columnName));
+    }
+
+    public Boolean getBoolean(int row, int column) {
+        Object output = getItem(row, column);
+
+        if (output instanceof Boolean) {
+            return (Boolean) output;
+        }
+
+        return null;
+    }
+
+    public Boolean getBoolean(int row, String columnName) {
+        return getBoolean(row, getColumnNumber(columnName));
+    }
+
+    /**
+     * Copies the data back into a new GridList on the heap.
+     */
+    public GridList toGridList() {
+        GridList output = new GridList(numRows);
+        output.setColumnNames(new HashMap(columnNames));
+
+        for (int row = 0; row < numRows; row++) {
+            int size = rowSize(row);
+            ArrayList newRow = new ArrayList(size);
+            for (int col = 0; col < size; col++) {
+                newRow.add(columns[col].isNull(row) ? null : columns[col].get(row));
+            }
+            output.addRow(newRow);
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns the number of columns in a row of the source GridList.
+     */
+    private int rowSize(int row) {
+        return (rowSizes == null) ? columns.length : rowSizes.getInt(row << 2);
+    }
+
+    /**
+     * Records the length of each row, unless every row has every column.
+     */
+    private ByteBuffer buildRowSizes(List rows, int numCols) {
+        boolean ragged = false;
+        for (Object row : rows) {
+            if (row == null || ((List) row).size() < numCols) {
+                ragged = true;
+                break;
+            }
+        }
+
+        if (!ragged) {
+            return null;
+        }
+
+        ByteBuffer output = allocate((long) numRows << 2);
+        for (int i = 0; i < numRows; i++) {
+            List row = (List) rows.get(i);
+            output.putInt(i << 2, (row == null) ? 0 : Math.min(row.size(), numCols));
+        }
+
+        return output;
+    }
+
+    private boolean exists(int row, int column) {
+        return row >= 0 && row < numRows && column >= 0 && column < columns.length;
+    }
+
+    /**
+     * Chooses a layout for a column from the types of its values, and copies
+     * the values into it.
+     */
+    private Column buildColumn(List rows, int column) {
+        Class type = null;
+        boolean hasNulls = false;
+
+        for (Object row : rows) {
+            Object value = cell(row, column);
+            if (value == null) {
+                hasNulls = true;
+            } else if (type == null) {
+                type = value.getClass();
+            } else if (type != value.getClass()) {
+                type = Object.class;
+            }
+        }
+
+        Column output;
+        if (type == null) {
+            return new EmptyColumn();
+        } else if (type == Integer.class) {
+            output = new IntColumn(numRows);
+        } else if (type == Long.class) {
+            output = new LongColumn(numRows, false);
+        } else if (type == Date.class) {
+            output = new LongColumn(numRows, true);
+        } else if (type == Double.class) {
+            output = new DoubleColumn(numRows);
+        } else if (type == Float.class) {
+            output = new FloatColumn(numRows);
+        } else if (type == Boolean.class) {
+            output = new BooleanColumn(numRows);
+        } else if (type == String.class) {
+            output = new StringColumn(numRows);
+        } else {
+            output = new HeapColumn(numRows);
+        }
+
+        if (hasNulls) {
+            output.nulls = allocate((numRows + 7) >>> 3);
+        }
+
+        for (int i = 0; i < numRows; i++) {
+            Object value = cell(rows.get(i), column);
+            if (value == null) {
+                output.setNull(i);
+            } else {
+                output.set(i, value);
+            }
+        }
+
+        return output;
+    }
+
+    private static Object cell(Object row, int column) {
+        List values = (List) row;
+
+        return (values == null || column >= values.size()) ? null : values.get(column);
+    }
+
+    private static ByteBuffer allocate(long size) {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Column too large for an off-heap buffer: " + size + " bytes");
+        }
+
+        return ByteBuffer.allocateDirect((int) size).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * The values of one column. All reads use absolute positions, so a Column
+     * can be read by many threads at once.
+     */
+    private abstract static class Column {
+
+        //one bit per row, set if the cell is null; null if there are no nulls
+        ByteBuffer nulls;
+
+        boolean isNull(int row) {
+            return nulls != null && (nulls.get(row >>> 3) & (1 << (row & 7))) != 0;
+        }
+
+        void setNull(int row) {
+            nulls.put(row >>> 3, (byte) (nulls.get(row >>> 3) | (1 << (row & 7))));
+        }
+
+        abstract Object get(int row);
+
+        abstract void set(int row, Object value);
+    }
+
+    private static class EmptyColumn extends Column {
+
+        @Override
+        boolean isNull(int row) {
+            return true;
+        }
+
+        @Override
+        void setNull(int row) {
+        }
+
+        @Override
+        Object get(int row) {
+            return null;
+        }
+
+        @Override
+        void set(int row, Object value) {
+        }
+    }
+
+    private static class IntColumn extends Column {
+
+        private final ByteBuffer data;
+
+        IntColumn(int numRows) {
+            data = allocate((long) numRows << 2);
+        }
+
+        int getInt(int row) {
+            return data.getInt(row << 2);
+        }
+
+        @Override
+        Object get(int row) {
+            return getInt(row);
+        }
+
+        @Override
+        void set(int row, Object value) {
+            data.putInt(row << 2, (Integer) value);
+        }
+    }
+
+    /**
+     * Longs, or Dates as milliseconds.
+     */
+    private static class LongColumn extends Column {
+
+        private final ByteBuffer data;
+        private final boolean dates;
+
+        LongColumn(int numRows, boolean dates) {
+            data = allocate((long) numRows << 3);
+            this.dates = dates;
+        }
+
+        @Override
+        Object get(int row) {
+            long value = data.getLong(row << 3);
+
+            return dates ? new Date(value) : (Object) value;
+        }
+
+        @Override
+        void set(int row, Object value) {
+            data.putLong(row << 3, dates ? ((Date) value).getTime() : (Long) value);
+        }
+    }
+
+    private static class DoubleColumn extends Column {
+
+        private final ByteBuffer data;
+
+        DoubleColumn(int numRows) {
+            data = allocate((long) numRows << 3);
+        }
+
+        double getDouble(int row) {
+            return data.getDouble(row << 3);
+        }
+
+        @Override
+        Object get(int row) {
+            return getDouble(row);
+        }
+
+        @Override
+        void set(int row, Object value) {
+            data.putDouble(row << 3, (Double) value);
+        }
+    }
+
+    private static class FloatColumn extends Column {
+
+        private final ByteBuffer data;
+
+        FloatColumn(int numRows) {
+            data = allocate((long) numRows << 2);
+        }
+
+        @Override
+        Object get(int row) {
+            return data.getFloat(row << 2);
+        }
+
+        @Override
+        void set(int row, Object value) {
+            data.putFloat(row << 2, (Float) value);
+        }
+    }
+
+    private static class BooleanColumn extends Column {
+
+        private final ByteBuffer data;
+
+        BooleanColumn(int numRows) {
+            data = allocate(numRows);
+        }
+
+        @Override
+        Object get(int row) {
+            return data.get(row) != 0;
+        }
+
+        @Override
+        void set(int row, Object value) {
+            data.put(row, (Boolean) value ? (byte) 1 : (byte) 0);
+        }
+    }
+
+    /**
+     * Strings, as UTF-8 bytes prefixed with a varint length, appended to a
+     * list of chunks. Each row holds the chunk number in the high half of a
+     * long and the position in the chunk in the low half. A value never spans
+     * two chunks.
+     */
+    private static class StringColumn extends Column {
+
+        private final ByteBuffer offsets;
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private ByteBuffer current = null;
+        private int position = 0;
+
+        StringColumn(int numRows) {
+            offsets = allocate((long) numRows << 3);
+        }
+
+        @Override
+        Object get(int row) {
+            long offset = offsets.getLong(row << 3);
+            ByteBuffer chunk = chunks.get((int) (offset >>> 32));
+            int pos = (int) offset;
+
+            int length = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = chunk.get(pos++);
+                length |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            byte[] bytes = new byte[length];
+            chunk.get(pos, bytes);
+
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        void set(int row, Object value) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            int needed = bytes.length + 5;
+
+            if (current == null || current.capacity() - position < needed) {
+                int size = (current == null) ? MIN_CHUNK_SIZE : Math.min(current.capacity() * 2, MAX_CHUNK_SIZE);
+                current = allocate(Math.max(size, needed));
+                chunks.add(current);
+                position = 0;
+            }
+
+            offsets.putLong(row << 3, (long) (chunks.size() - 1) << 32 | position);
+
+            int length = bytes.length;
+            while ((length & ~0x7F) != 0) {
+                current.put(position++, (byte) ((length & 0x7F) | 0x80));
+                length >>>= 7;
+            }
+            current.put(position++, (byte) length);
+
+            current.put(position, bytes);
+            position += bytes.length;
+        }
+    }
+
+    /**
+     * Values of mixed or unsupported types, kept on the heap.
+     */
+    private static class HeapColumn extends Column {
+
+        private final Object[] data;
+
+        HeapColumn(int numRows) {
+            data = new Object[numRows];
+        }
+
+        @Override
+        Object get(int row) {
+            return data[row];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            data[row] = value;
+        }
+    }
+
+}
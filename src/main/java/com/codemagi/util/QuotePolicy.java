@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+/**
+ * Controls which fields DelimitedWriter encloses in double quotes. Quotes
+ * inside quoted fields are escaped by doubling them, as in RFC 4180.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public enum QuotePolicy {
+
+    /**
+     * Never quote fields. Fields are written exactly as they are, even if they
+     * contain the delimiter or line breaks.
+     */
+    NONE,
+    /**
+     * Quote only fields that contain the delimiter, a double quote, or a line
+     * break.
+     */
+    MINIMAL,
+    /**
+     * Quote every field.
+     */
+    ALL;
+
+}
@@ -0,0 +1,207 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads records of quoted, delimited data (CSV) from a Reader, following RFC
+ * 4180. The input is parsed in a single pass by a state machine:
+ * <UL>
+ * <LI>Fields may be enclosed in double quotes, in which case they may contain
+ * delimiters, line breaks and quotes
+ * <LI>A quote inside a quoted field is escaped by doubling it ("")
+ * <LI>Records end at LF, CR or CR+LF outside of a quoted field
+ * </UL>
+ * Parsing is lenient: a quote inside an unquoted field is kept as-is, text
+ * following the closing quote of a field is appended to it, and an
+ * unterminated quoted field runs to the end of the input.
+ * <P>
+ * Only the field values are allocated. Instances are not thread-safe.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class QuotedDataReader {
+
+    private static final char QUOTE = '"';
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    //parser states
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+
+    private final Reader in;
+    private final char[] delimiter;
+
+    private final char[] buf = new char[BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+
+    //chars discarded from the front of the buffer so far
+    private long consumed = 0;
+
+    private final StringBuilder field = new StringBuilder(64);
+
+    /**
+     * Constructor
+     *
+     * @param in Reader to read data from. It is not closed by this class.
+     * @param delimiter The delimiter that separates fields, such as "," or
+     * "\t"
+     */
+    public QuotedDataReader(Reader in, String delimiter) {
+        this.in = in;
+        this.delimiter = (delimiter == null) ? new char[0] : delimiter.toCharArray();
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return List The field values of the next record as Strings, or null if
+     * the end of the input has been reached
+     * @throws IOException If the Reader cannot be read
+     */
+    public List readRecord() throws IOException {
+        if (!fill(1)) {
+            return null;
+        }
+
+        List record = new ArrayList();
+        field.setLength(0);
+
+        int state = FIELD_START;
+
+        while (true) {
+            if (pos >= limit && !fill(1)) {
+                //end of input ends the record
+                record.add(field.toString());
+                return record;
+            }
+
+            char c = buf[pos];
+
+            switch (state) {
+                case QUOTED:
+                    if (c == QUOTE) {
+                        state = QUOTE_IN_QUOTED;
+                    } else {
+                        field.append(c);
+                    }
+                    pos++;
+                    break;
+
+                case QUOTE_IN_QUOTED:
+                    if (c == QUOTE) {
+                        //escaped quote
+                        field.append(QUOTE);
+                        pos++;
+                        state = QUOTED;
+                    } else {
+                        //the previous quote closed the field: reprocess this char
+                        state = UNQUOTED;
+                    }
+                    break;
+
+                default:
+                    if (c == '\n' || c == '\r') {
+                        pos++;
+                        if (c == '\r' && fill(1) && buf[pos] == '\n') {
+                            pos++;
+                        }
+                        record.add(field.toString());
+                        return record;
+                    }
+
+                    if (isDelimiterAtPos()) {
+                        pos += delimiter.length;
+                        record.add(field.toString());
+                        field.setLength(0);
+                        state = FIELD_START;
+                        break;
+                    }
+
+                    if (c == QUOTE && state == FIELD_START) {
+                        state = QUOTED;
+                    } else {
+                        field.append(c);
+                        state = UNQUOTED;
+                    }
+                    pos++;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the delimiter begins at the current position.
+     */
+    private boolean isDelimiterAtPos() throws IOException {
+        int length = delimiter.length;
+
+        if (length == 0 || buf[pos] != delimiter[0]) {
+            return false;
+        }
+        if (length > 1 && !fill(length)) {
+            return false;
+        }
+
+        for (int i = 1; i < length; i++) {
+            if (buf[pos + i] != delimiter[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of chars consumed from the Reader by the records read
+     * so far.
+     */
+    public long getCharsRead() {
+        return consumed + pos;
+    }
+
+    /**
+     * Makes sure at least n chars are available in the buffer from the
+     * current position, reading more input if necessary.
+     *
+     * @return boolean False if the end of the input was reached first
+     */
+    private boolean fill(int n) throws IOException {
+        while (limit - pos < n) {
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, limit - pos);
+                consumed += pos;
+                limit -= pos;
+                pos = 0;
+            }
+
+            int read = in.read(buf, limit, buf.length - limit);
+            if (read < 0) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+
+}
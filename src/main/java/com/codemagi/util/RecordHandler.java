@@ -0,0 +1,35 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+/**
+ * Callback interface for receiving records from a parser one at a time, as
+ * lazy DataRecord views rather than fully materialized rows.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public interface RecordHandler {
+
+    /**
+     * Called once for each record parsed from the input, in input order.
+     *
+     * @param record The parsed record. It is only valid for the duration of
+     * the call; copy any values that need to be retained.
+     */
+    public void handleRecord(DataRecord record);
+
+}
@@ -0,0 +1,315 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Compact binary encoding of rows (Lists of values). Each row is written as a
+ * variable-length field count followed by a one-byte type tag and the value of
+ * each field. Lengths and integers use variable-length (varint) encoding, and
+ * Strings are written as UTF-8.
+ * <P>
+ * Strings, Integers, Longs, Shorts, Bytes, Doubles, Floats, BigDecimals,
+ * BigIntegers, Dates, Timestamps, Booleans and nulls are written compactly and
+ * keep their type. Any other Serializable value is written with Java
+ * serialization, and also keeps its type. Values that are not Serializable
+ * are written as their String representations; isEncodable tells them apart.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class RowCodec {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte DATE = 5;
+    private static final byte TRUE = 6;
+    private static final byte FALSE = 7;
+    private static final byte FLOAT = 8;
+    private static final byte SHORT = 9;
+    private static final byte BYTE = 10;
+    private static final byte BIG_DECIMAL = 11;
+    private static final byte BIG_INTEGER = 12;
+    private static final byte TIMESTAMP = 13;
+    private static final byte SERIALIZED = 14;
+
+    private RowCodec() {
+    }
+
+    /**
+     * Writes a row.
+     *
+     * @param out DataOutput to write to
+     * @param row List of values
+     * @throws IOException If the output cannot be written
+     */
+    public static void writeRow(DataOutput out, List row) throws IOException {
+        writeVarInt(out, row.size());
+
+        for (Object value : row) {
+            writeValue(out, value);
+        }
+    }
+
+    /**
+     * Reads a row written by writeRow.
+     *
+     * @param in DataInput to read from
+     * @return List A new List containing the row's values
+     * @throws IOException If the input cannot be read or is corrupt
+     */
+    public static List readRow(DataInput in) throws IOException {
+        int numFields = readVarInt(in);
+
+        List output = new ArrayList(numFields);
+        for (int i = 0; i < numFields; i++) {
+            output.add(readValue(in));
+        }
+
+        return output;
+    }
+
+    /**
+     * Returns true if a value is read back by readValue with its type and
+     * value intact: it is null, or Serializable.
+     */
+    public static boolean isEncodable(Object value) {
+        return value == null || value instanceof Serializable;
+    }
+
+    /**
+     * Writes a single value with its type tag.
+     */
+    public static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            writeVarLong(out, zigZag((Integer) value));
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            writeVarLong(out, zigZag((Long) value));
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(DATE);
+            writeVarLong(out, zigZag(((Date) value).getTime()));
+        } else if (value instanceof Boolean) {
+            out.writeByte(((Boolean) value) ? TRUE : FALSE);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value.getClass() == BigDecimal.class) {
+            out.writeByte(BIG_DECIMAL);
+            writeBytes(out, ((BigDecimal) value).unscaledValue().toByteArray());
+            writeVarLong(out, zigZag(((BigDecimal) value).scale()));
+        } else if (value.getClass() == BigInteger.class) {
+            out.writeByte(BIG_INTEGER);
+            writeBytes(out, ((BigInteger) value).toByteArray());
+        } else if (value.getClass() == Timestamp.class) {
+            out.writeByte(TIMESTAMP);
+            writeVarLong(out, zigZag(((Timestamp) value).getTime()));
+            writeVarInt(out, ((Timestamp) value).getNanos());
+        } else if (value instanceof Serializable) {
+            out.writeByte(SERIALIZED);
+            writeBytes(out, serialize(value));
+        } else {
+            out.writeByte(STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    /**
+     * Reads a single value written by writeValue.
+     */
+    public static Object readValue(DataInput in) throws IOException {
+        byte type = in.readByte();
+
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INTEGER:
+                return (int) unZigZag(readVarLong(in));
+            case LONG:
+                return unZigZag(readVarLong(in));
+            case DOUBLE:
+                return in.readDouble();
+            case DATE:
+                return new Date(unZigZag(readVarLong(in)));
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case FLOAT:
+                return in.readFloat();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case BIG_DECIMAL:
+                BigInteger unscaled = new BigInteger(readBytes(in));
+                return new BigDecimal(unscaled, (int) unZigZag(readVarLong(in)));
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(in));
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(unZigZag(readVarLong(in)));
+                timestamp.setNanos(readVarInt(in));
+                return timestamp;
+            case SERIALIZED:
+                return deserialize(readBytes(in));
+            default:
+                throw new IOException("Unknown value type: " + type);
+        }
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+
+        return bytes;
+    }
+
+    private static byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        } catch (ClassNotFoundException cnfe) {
+            throw new IOException("Cannot read serialized value", cnfe);
+        }
+    }
+
+    /**
+     * Writes a String as a varint length followed by UTF-8 bytes.
+     */
+    public static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a String written by writeString.
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in);
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a non-negative int in 1 to 5 bytes, 7 bits per byte.
+     */
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Reads an int written by writeVarInt.
+     */
+    public static int readVarInt(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Varint out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Writes a long in 1 to 10 bytes, 7 bits per byte, low bits first.
+     */
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads a long written by writeVarLong.
+     */
+    public static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Maps signed values to unsigned so that small negative numbers also
+     * encode in few bytes.
+     */
+    public static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+/**
+ * A predicate that DataLoader evaluates against each record while it is being
+ * parsed. Rows that are rejected are never materialized.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public interface RowFilter {
+
+    /**
+     * Returns true if the row should be loaded.
+     *
+     * @param record The parsed record, containing every column of the input
+     * (before column projection) as Strings. It is only valid for the duration
+     * of the call.
+     */
+    public boolean accept(DataRecord record);
+
+}
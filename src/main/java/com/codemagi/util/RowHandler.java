@@ -0,0 +1,39 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.List;
+
+/**
+ * Callback interface for receiving rows from DataLoader one at a time as they
+ * are parsed. Streaming rows through a RowHandler allows files larger than the
+ * available heap to be processed, since no more than one row is held in memory
+ * by the loader at any time.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public interface RowHandler {
+
+    /**
+     * Called once for each row parsed from the input, in input order.
+     *
+     * @param row List of field values (usually Strings) for the row. The List
+     * is not reused by the loader, so implementations may retain it.
+     */
+    public void handleRow(List row);
+
+}
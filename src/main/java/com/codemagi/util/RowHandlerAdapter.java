@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapts a RowHandler to receive DataRecords, by materializing every field of
+ * each record into a new List of Strings.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class RowHandlerAdapter implements RecordHandler {
+
+    private final RowHandler handler;
+
+    /**
+     * Constructor.
+     *
+     * @param handler RowHandler to pass materialized rows to
+     */
+    public RowHandlerAdapter(RowHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public void handleRecord(DataRecord record) {
+        handler.handleRow(toList(record));
+    }
+
+    /**
+     * Materializes every field of a DataRecord into a new List of Strings.
+     *
+     * @param record The record to copy
+     * @return List A new List containing the record's field values
+     */
+    public static List toList(DataRecord record) {
+        int numFields = record.getFieldCount();
+
+        List output = new ArrayList(numFields);
+        for (int i = 0; i < numFields; i++) {
+            output.add(record.getField(i));
+        }
+
+        return output;
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Visits a range of rows as RowViews. Splitting halves the range, so each
+ * half is a contiguous block of rows, and the sizes are exact. The rows must
+ * not be added or removed while the Spliterator is in use.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+class RowSpliterator implements Spliterator<RowView> {
+
+    private final List rows;
+    private int index;
+    private final int end;
+
+    /**
+     * Constructs a Spliterator over every row. Lists without fast random
+     * access have their row references copied to an ArrayList first; the rows
+     * themselves are not copied.
+     */
+    RowSpliterator(List rows) {
+        this(rows instanceof RandomAccess ? rows : new ArrayList(rows), 0, rows.size());
+    }
+
+    private RowSpliterator(List rows, int index, int end) {
+        this.rows = rows;
+        this.index = index;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super RowView> action) {
+        if (index >= end) {
+            return false;
+        }
+
+        int row = index++;
+        action.accept(new RowView(row, (List) rows.get(row)));
+
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super RowView> action) {
+        for (int row = index; row < end; row++) {
+            action.accept(new RowView(row, (List) rows.get(row)));
+        }
+        index = end;
+    }
+
+    @Override
+    public Spliterator<RowView> trySplit() {
+        int mid = (index + end) >>> 1;
+        if (mid <= index) {
+            return null;
+        }
+
+        Spliterator<RowView> prefix = new RowSpliterator(rows, index, mid);
+        index = mid;
+
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | SIZED | SUBSIZED;
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A read-only view of one row of a GridList or ObjectFlatFile, as returned by
+ * their row Spliterators and Streams. The view reads the row in place rather
+ * than copying it, so it reflects later changes to the row. Missing columns
+ * read as null.
+ * <P>
+ * The boxed getters, such as getInteger, behave like those of ObjectFlatFile:
+ * they return a value only if it is already of the requested type. The
+ * primitive getters, getInt and getDouble, also parse numeric Strings.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class RowView {
+
+    private final int rowNumber;
+    private final List values;
+
+    RowView(int rowNumber, List values) {
+        this.rowNumber = rowNumber;
+        this.values = (values == null) ? Collections.EMPTY_LIST : values;
+    }
+
+    /**
+     * Returns the zero-based number of this row.
+     */
+    public int getRowNumber() {
+        return rowNumber;
+    }
+
+    /**
+     * Returns the number of columns in this row.
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Returns the value in a column, or null if the row has no such column.
+     */
+    public Object get(int column) {
+        return (column >= 0 && column < values.size()) ? values.get(column) : null;
+    }
+
+    public boolean isNull(int column) {
+        return get(column) == null;
+    }
+
+    public String getString(int column) {
+        Object output = get(column);
+
+        if (output instanceof String) {
+            return (String) output;
+        }
+
+        return (output != null) ? output.toString() : "";
+    }
+
+    public Integer getInteger(int column) {
+        Object output = get(column);
+
+        return (output instanceof Integer) ? (Integer) output : null;
+    }
+
+    public Long getLong(int column) {
+        Object output = get(column);
+
+        return (output instanceof Long) ? (Long) output : null;
+    }
+
+    public Double getDouble(int column) {
+        Object output = get(column);
+
+        return (output instanceof Double) ? (Double) output : null;
+    }
+
+    public Date getDate(int column) {
+        Object output = get(column);
+
+        return (output instanceof Date) ? (Date) output : null;
+    }
+
+    public Boolean getBoolean(int column) {
+        Object output = get(column);
+
+        return (output instanceof Boolean) ? (Boolean) output : null;
+    }
+
+    /**
+     * Returns a value as a primitive int, or a default if the value is null or
+     * not a whole number. Values may be any Number, or a String of a whole
+     * number, as DataLoader produces, like GridList.IntColumn.
+     */
+    public int getInt(int column, int defaultValue) {
+        Object output = get(column);
+
+        if (output instanceof Number) {
+            return ((Number) output).intValue();
+        }
+        if (output instanceof String) {
+            try {
+                return Integer.parseInt((String) output);
+            } catch (NumberFormatException nfe) {
+                //fall through
+            }
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Returns a value as a primitive double, or a default if the value is null
+     * or not numeric. Values may be any Number, or a numeric String, like
+     * GridList.DoubleColumn.
+     */
+    public double getDouble(int column, double defaultValue) {
+        Object output = get(column);
+
+        if (output instanceof Number) {
+            return ((Number) output).doubleValue();
+        }
+        if (output instanceof String && !((String) output).isEmpty()) {
+            try {
+                return Double.parseDouble((String) output);
+            } catch (NumberFormatException nfe) {
+                //fall through
+            }
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Returns the row as an unmodifiable List, backed by the row itself.
+     */
+    public List asList() {
+        return Collections.unmodifiableList(values);
+    }
+
+    @Override
+    public String toString() {
+        return rowNumber + ": " + values;
+    }
+
+}
@@ -0,0 +1,613 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reads and writes ObjectFlatFiles and GridLists in a compact, versioned
+ * binary snapshot format, so that parsed data can be cached between runs and
+ * reloaded much faster than re-parsing the source file, and in far less space
+ * than Java serialization.
+ * <P>
+ * A snapshot starts with a header (magic number, format version, the kind of
+ * structure and flags) followed by the body. The body stores the length of
+ * each row, then the values column by column. Columns of repeated Strings are
+ * stored as a dictionary of distinct values and a varint code per row; other
+ * columns are stored value by value in the RowCodec encoding. The body may
+ * optionally be compressed in independent blocks with BlockCompressor.
+ * <P>
+ * Reloading decodes the whole snapshot into a new ObjectFlatFile or GridList
+ * on the heap. The speed-up over re-parsing comes from the binary format, not
+ * from lazy loading. A snapshot file up to 2 GB is read through a memory
+ * mapping, which only saves the copying and read calls of a stream; larger
+ * files are read through a buffered stream. Values keep their types as
+ * described in RowCodec: common types are stored compactly, other
+ * Serializable values with Java serialization, and anything else as its
+ * String representation. Null rows are dropped.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class Snapshot {
+
+    static Logger log = LogManager.getLogger("com.codemagi.util.Snapshot");
+
+    /**
+     * The snapshot format version written by this class.
+     */
+    public static final int VERSION = 2;
+
+    //"CMSN"
+    private static final int MAGIC = 0x434D534E;
+
+    private static final byte KIND_FLAT_FILE = 1;
+    private static final byte KIND_GRID_LIST = 2;
+
+    private static final int FLAG_COMPRESSED = 1;
+
+    private static final byte COLUMN_PLAIN = 0;
+    private static final byte COLUMN_DICTIONARY = 1;
+
+    //largest dictionary per column
+    private static final int MAX_DICTIONARY_SIZE = 65536;
+
+    //uncompressed size of each compressed block
+    private static final int BLOCK_SIZE = 256 * 1024;
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    private Snapshot() {
+    }
+
+    /**
+     * Writes an ObjectFlatFile snapshot to a file, replacing any existing
+     * file.
+     *
+     * @param data The ObjectFlatFile to write
+     * @param file The file to write to
+     * @param compress True to compress the body
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(ObjectFlatFile data, File file, boolean compress) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            write(data, out, compress);
+        }
+    }
+
+    /**
+     * Writes a GridList snapshot to a file, replacing any existing file.
+     *
+     * @param data The GridList to write
+     * @param file The file to write to
+     * @param compress True to compress the body
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(GridList data, File file, boolean compress) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            write(data, out, compress);
+        }
+    }
+
+    /**
+     * Writes an ObjectFlatFile snapshot to an OutputStream. The stream is
+     * flushed but not closed.
+     */
+    public static void write(ObjectFlatFile data, OutputStream out, boolean compress) throws IOException {
+        final List rows = new ArrayList(data.getNumRows());
+        data.forEachRow(new RowHandler() {
+            @Override
+            public void handleRow(List row) {
+                rows.add(row);
+            }
+        });
+
+        write(KIND_FLAT_FILE, null, rows, out, compress);
+    }
+
+    /**
+     * Writes a GridList snapshot, including its column names, to an
+     * OutputStream. The stream is flushed but not closed.
+     */
+    public static void write(GridList data, OutputStream out, boolean compress) throws IOException {
+        write(KIND_GRID_LIST, data.getColumnNames(), data.readRows(), out, compress);
+    }
+
+    /**
+     * Reloads an ObjectFlatFile from a snapshot file, decoding every row.
+     * Either kind of snapshot may be read.
+     *
+     * @param file The snapshot file
+     * @return ObjectFlatFile The reloaded data
+     * @throws IOException If the file cannot be read, or is not a snapshot
+     */
+    public static ObjectFlatFile readFlatFile(File file) throws IOException {
+        return toFlatFile(read(file));
+    }
+
+    /**
+     * Reloads an ObjectFlatFile from a snapshot read from an InputStream.
+     * Either kind of snapshot may be read.
+     */
+    public static ObjectFlatFile readFlatFile(InputStream in) throws IOException {
+        return toFlatFile(read(in));
+    }
+
+    /**
+     * Reloads a GridList from a snapshot file, decoding every row. Either
+     * kind of snapshot may be read; a GridList read from an ObjectFlatFile
+     * snapshot has no column names.
+     *
+     * @param file The snapshot file
+     * @return GridList The reloaded data
+     * @throws IOException If the file cannot be read, or is not a snapshot
+     */
+    public static GridList readGridList(File file) throws IOException {
+        return toGridList(read(file));
+    }
+
+    /**
+     * Reloads a GridList from a snapshot read from an InputStream. Either
+     * kind of snapshot may be read.
+     */
+    public static GridList readGridList(InputStream in) throws IOException {
+        return toGridList(read(in));
+    }
+
+    private static ObjectFlatFile toFlatFile(Contents contents) {
+        ObjectFlatFile output = new ObjectFlatFile(contents.rows.size());
+
+        for (Object row : contents.rows) {
+            output.addRow((List) row);
+        }
+
+        return output;
+    }
+
+    private static GridList toGridList(Contents contents) {
+        GridList output = new GridList(0);
+
+        output.setRows(contents.rows);
+        output.setColumnNames(contents.columnNames);
+
+        return output;
+    }
+
+    /**
+     * Writes the header and body of a snapshot.
+     */
+    private static void write(byte kind, Map columnNames, List rows, OutputStream out, boolean compress)
+            throws IOException {
+
+        DataOutputStream header = new DataOutputStream(new BufferedOutputStream(out, IO_BUFFER_SIZE));
+        header.writeInt(MAGIC);
+        header.writeByte(VERSION);
+        header.writeByte(kind);
+        header.writeByte(compress ? FLAG_COMPRESSED : 0);
+
+        if (!compress) {
+            writeBody(columnNames, rows, header);
+            header.flush();
+            return;
+        }
+
+        BlockOutputStream blocks = new BlockOutputStream(header);
+        DataOutputStream body = new DataOutputStream(blocks);
+
+        writeBody(columnNames, rows, body);
+
+        body.flush();
+        blocks.finish();
+        header.flush();
+    }
+
+    private static void writeBody(Map columnNames, List rows, DataOutput out) throws IOException {
+
+        //column names
+        Map names = (columnNames == null) ? Collections.emptyMap() : columnNames;
+        RowCodec.writeVarInt(out, names.size());
+        for (Object entry : names.entrySet()) {
+            Map.Entry e = (Map.Entry) entry;
+            RowCodec.writeString(out, String.valueOf(e.getKey()));
+            RowCodec.writeVarInt(out, ((Number) e.getValue()).intValue());
+        }
+
+        //row lengths
+        int numRows = 0;
+        int numCols = 0;
+        for (Object row : rows) {
+            if (row != null) {
+                numRows++;
+                numCols = Math.max(numCols, ((List) row).size());
+            }
+        }
+        RowCodec.writeVarInt(out, numRows);
+        RowCodec.writeVarInt(out, numCols);
+        for (Object row : rows) {
+            if (row != null) {
+                RowCodec.writeVarInt(out, ((List) row).size());
+            }
+        }
+
+        //values, column by column
+        for (int col = 0; col < numCols; col++) {
+            Map<String, Integer> dictionary = buildDictionary(rows, col);
+
+            if (dictionary == null) {
+                out.writeByte(COLUMN_PLAIN);
+                for (Object row : rows) {
+                    if (row != null && col < ((List) row).size()) {
+                        RowCodec.writeValue(out, ((List) row).get(col));
+                    }
+                }
+                continue;
+            }
+
+            out.writeByte(COLUMN_DICTIONARY);
+            RowCodec.writeVarInt(out, dictionary.size());
+            for (String value : dictionary.keySet()) {
+                RowCodec.writeString(out, value);
+            }
+
+            //code 0 is followed by a value not in the dictionary
+            for (Object row : rows) {
+                if (row != null && col < ((List) row).size()) {
+                    Object value = ((List) row).get(col);
+                    Integer code = (value instanceof String) ? dictionary.get(value) : null;
+
+                    if (code == null) {
+                        out.writeByte(0);
+                        RowCodec.writeValue(out, value);
+                    } else {
+                        RowCodec.writeVarInt(out, code);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a dictionary (String to code, in insertion order) for a column
+     * if at least half of its Strings are repeats, or null if the column
+     * should be stored plain.
+     */
+    private static Map<String, Integer> buildDictionary(List rows, int col) {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        int numStrings = 0;
+
+        for (Object row : rows) {
+            if (row != null && col < ((List) row).size()) {
+                Object value = ((List) row).get(col);
+
+                if (value instanceof String) {
+                    numStrings++;
+                    if (!dictionary.containsKey(value)) {
+                        if (dictionary.size() == MAX_DICTIONARY_SIZE) {
+                            return null;
+                        }
+                        dictionary.put((String) value, dictionary.size() + 1);
+                    }
+                }
+            }
+        }
+
+        return (dictionary.size() > 0 && dictionary.size() * 2 <= numStrings) ? dictionary : null;
+    }
+
+    /**
+     * Reads and fully decodes a snapshot file, through a memory mapping if it
+     * fits in one (up to 2 GB), otherwise through a buffered stream. The
+     * mapping is only used as the input buffer; nothing is decoded lazily.
+     */
+    private static Contents read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            if (size > Integer.MAX_VALUE) {
+                //too large to map in one piece
+                try (InputStream in = new FileInputStream(file)) {
+                    return read(in);
+                }
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return read(new BufferInputStream(buffer));
+        }
+    }
+
+    /**
+     * Reads a snapshot from a stream.
+     */
+    private static Contents read(InputStream in) throws IOException {
+        if (!(in instanceof BufferInputStream || in instanceof BufferedInputStream)) {
+            in = new BufferedInputStream(in, IO_BUFFER_SIZE);
+        }
+
+        DataInputStream header = new DataInputStream(in);
+        if (header.readInt() != MAGIC) {
+            throw new IOException("Not a snapshot");
+        }
+        int version = header.readUnsignedByte();
+        if (version > VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+        byte kind = header.readByte();
+        int flags = header.readUnsignedByte();
+
+        log.debug("Reading snapshot version " + version + " kind " + kind + " flags " + flags);
+
+        DataInput body = ((flags & FLAG_COMPRESSED) != 0) ? new DataInputStream(new BlockInputStream(in)) : header;
+
+        return readBody(body);
+    }
+
+    private static Contents readBody(DataInput in) throws IOException {
+        Contents output = new Contents();
+
+        //column names
+        int numNames = RowCodec.readVarInt(in);
+        for (int i = 0; i < numNames; i++) {
+            String name = RowCodec.readString(in);
+            output.columnNames.put(name, RowCodec.readVarInt(in));
+        }
+
+        //row lengths
+        int numRows = RowCodec.readVarInt(in);
+        int numCols = RowCodec.readVarInt(in);
+        int[] lengths = new int[numRows];
+
+        output.rows = new ArrayList(numRows);
+        for (int r = 0; r < numRows; r++) {
+            lengths[r] = RowCodec.readVarInt(in);
+            output.rows.add(new ArrayList(lengths[r]));
+        }
+
+        //values, column by column
+        for (int col = 0; col < numCols; col++) {
+            byte encoding = in.readByte();
+
+            String[] dictionary = null;
+            if (encoding == COLUMN_DICTIONARY) {
+                dictionary = new String[RowCodec.readVarInt(in) + 1];
+                for (int i = 1; i < dictionary.length; i++) {
+                    dictionary[i] = RowCodec.readString(in);
+                }
+            } else if (encoding != COLUMN_PLAIN) {
+                throw new IOException("Unknown column encoding: " + encoding);
+            }
+
+            for (int r = 0; r < numRows; r++) {
+                if (col >= lengths[r]) {
+                    continue;
+                }
+
+                List row = (List) output.rows.get(r);
+
+                if (dictionary == null) {
+                    row.add(RowCodec.readValue(in));
+                    continue;
+                }
+
+                int code = RowCodec.readVarInt(in);
+                if (code == 0) {
+                    row.add(RowCodec.readValue(in));
+                } else if (code < dictionary.length) {
+                    row.add(dictionary[code]);
+                } else {
+                    throw new IOException("Dictionary code out of range: " + code);
+                }
+            }
+        }
+
+        return output;
+    }
+
+    /**
+     * The decoded contents of a snapshot.
+     */
+    private static class Contents {
+
+        private ArrayList rows;
+        private final Map columnNames = new HashMap();
+    }
+
+    /**
+     * Reads bytes from a ByteBuffer.
+     */
+    private static class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Compresses its output in blocks of BLOCK_SIZE bytes. Each block is
+     * written as its uncompressed length and its compressed length (0 if the
+     * block is stored uncompressed) followed by its bytes. A zero-length
+     * block marks the end.
+     */
+    private static class BlockOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private final byte[] compressed = new byte[BlockCompressor.maxCompressedLength(BLOCK_SIZE)];
+        private int count = 0;
+
+        BlockOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == block.length) {
+                writeBlock();
+            }
+            block[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == block.length) {
+                    writeBlock();
+                }
+
+                int n = Math.min(len, block.length - count);
+                System.arraycopy(b, off, block, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        /**
+         * Writes the last block and the end marker. Does not close the
+         * underlying stream.
+         */
+        void finish() throws IOException {
+            writeBlock();
+            RowCodec.writeVarInt(out, 0);
+        }
+
+        private void writeBlock() throws IOException {
+            if (count == 0) {
+                return;
+            }
+
+            int length = BlockCompressor.compress(block, 0, count, compressed, 0);
+
+            RowCodec.writeVarInt(out, count);
+            if (length < count) {
+                RowCodec.writeVarInt(out, length);
+                out.write(compressed, 0, length);
+            } else {
+                RowCodec.writeVarInt(out, 0);
+                out.write(block, 0, count);
+            }
+
+            count = 0;
+        }
+    }
+
+    /**
+     * Reads blocks written by BlockOutputStream.
+     */
+    private static class BlockInputStream extends InputStream {
+
+        private final DataInputStream in;
+        private final byte[] block = new byte[BLOCK_SIZE];
+        private byte[] compressed = new byte[0];
+        private int pos = 0;
+        private int count = 0;
+        private boolean finished = false;
+
+        BlockInputStream(InputStream in) {
+            this.in = new DataInputStream(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos == count && !readBlock()) {
+                return -1;
+            }
+            return block[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos == count && !readBlock()) {
+                return -1;
+            }
+
+            int n = Math.min(len, count - pos);
+            System.arraycopy(block, pos, b, off, n);
+            pos += n;
+
+            return n;
+        }
+
+        private boolean readBlock() throws IOException {
+            if (finished) {
+                return false;
+            }
+
+            int length = RowCodec.readVarInt(in);
+            if (length == 0) {
+                finished = true;
+                return false;
+            }
+            int compressedLength = RowCodec.readVarInt(in);
+            if (length > block.length || compressedLength > BlockCompressor.maxCompressedLength(BLOCK_SIZE)) {
+                throw new IOException("Block too large: " + length);
+            }
+
+            if (compressedLength == 0) {
+                in.readFully(block, 0, length);
+            } else {
+                if (compressed.length < compressedLength) {
+                    compressed = new byte[BlockCompressor.maxCompressedLength(BLOCK_SIZE)];
+                }
+                in.readFully(compressed, 0, compressedLength);
+                BlockCompressor.decompress(compressed, 0, compressedLength, block, 0, length);
+            }
+
+            pos = 0;
+            count = length;
+
+            return true;
+        }
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A ColumnIndex for equality lookups and range queries in logarithmic time.
+ * Values are ordered as by ColumnComparator: naturally within a class, by
+ * class name between classes, with nulls first. In a column that mixes
+ * types, equal keys must be of the same class, so Integer 5 and String "5"
+ * are distinct, and a range query whose bounds are of one class returns only
+ * values of that class.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class SortedIndex extends ColumnIndex {
+
+    private final TreeMap map = new TreeMap(new Comparator() {
+        @Override
+        public int compare(Object o1, Object o2) {
+            return ColumnComparator.compareValues(o1, o2);
+        }
+    });
+
+    SortedIndex(int column) {
+        super(column);
+    }
+
+    @Override
+    public int getNumKeys() {
+        return map.size();
+    }
+
+    /**
+     * Returns the rows whose column is within a range, in order of value and
+     * then of row number.
+     *
+     * @param from The low end of the range
+     * @param fromInclusive True to include rows equal to from
+     * @param to The high end of the range
+     * @param toInclusive True to include rows equal to to
+     * @return int[] Row numbers. Empty if none match.
+     */
+    public int[] findRange(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+        if (ColumnComparator.compareValues(from, to) > 0) {
+            return new int[0];
+        }
+
+        return collect(map.subMap(from, fromInclusive, to, toInclusive));
+    }
+
+    /**
+     * Returns the rows whose column is less than (or equal to) a value, in
+     * order of value.
+     */
+    public int[] findLessThan(Object to, boolean inclusive) {
+        return collect(map.headMap(to, inclusive));
+    }
+
+    /**
+     * Returns the rows whose column is greater than (or equal to) a value, in
+     * order of value.
+     */
+    public int[] findGreaterThan(Object from, boolean inclusive) {
+        return collect(map.tailMap(from, inclusive));
+    }
+
+    /**
+     * Returns the smallest indexed value, or null if the index is empty.
+     */
+    public Object getMinValue() {
+        return map.isEmpty() ? null : map.firstKey();
+    }
+
+    /**
+     * Returns the largest indexed value, or null if the index is empty.
+     */
+    public Object getMaxValue() {
+        return map.isEmpty() ? null : map.lastKey();
+    }
+
+    @Override
+    Object get(Object value) {
+        return map.get(value);
+    }
+
+    @Override
+    void add(int row, Object value) {
+        map.put(value, addRow(map.get(value), row));
+    }
+
+    @Override
+    void remove(int row, Object value) {
+        Object rows = removeRow(map.get(value), row);
+
+        if (rows == null) {
+            map.remove(value);
+        } else {
+            map.put(value, rows);
+        }
+    }
+
+    @Override
+    void clear() {
+        map.clear();
+    }
+
+    private static int[] collect(NavigableMap range) {
+        int[] output = new int[Math.max(16, range.size())];
+        int count = 0;
+
+        for (Object rows : range.values()) {
+            output = append(output, count, rows);
+            count += size(rows);
+        }
+
+        return Arrays.copyOf(output, count);
+    }
+
+}
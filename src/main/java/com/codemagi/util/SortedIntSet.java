@@ -0,0 +1,102 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable set of ints kept in ascending order in a primitive array. Adding
+ * values in ascending order is constant time; other adds and removes shift
+ * the array. Not thread-safe.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+class SortedIntSet implements java.io.Serializable {
+
+    private int[] values = new int[4];
+    private int size = 0;
+
+    /**
+     * Adds a value.
+     *
+     * @return boolean True if the value was not already in the set
+     */
+    boolean add(int value) {
+        int pos = (size == 0 || values[size - 1] < value) ? size : Arrays.binarySearch(values, 0, size, value);
+        if (pos < 0) {
+            pos = -pos - 1;
+        } else if (pos < size) {
+            return false;
+        }
+
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        System.arraycopy(values, pos, values, pos + 1, size - pos);
+        values[pos] = value;
+        size++;
+
+        return true;
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @return boolean True if the value was in the set
+     */
+    boolean remove(int value) {
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos < 0) {
+            return false;
+        }
+
+        System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+        size--;
+
+        return true;
+    }
+
+    boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value at a position, counting from the smallest.
+     */
+    int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the values in ascending order, in a new array.
+     */
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Copies the values to an array, starting at an offset.
+     */
+    void copyTo(int[] dest, int offset) {
+        System.arraycopy(values, 0, dest, offset, size);
+    }
+
+}
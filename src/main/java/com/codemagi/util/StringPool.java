@@ -0,0 +1,131 @@
+/*
+ *  Copyright 2012 CodeMagi, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.codemagi.util;
+
+/**
+ * A bounded pool for deduplicating Strings. Columns with few distinct values,
+ * such as status or country codes, are loaded as a separate String per cell;
+ * passing each through intern() makes equal values share one instance, so
+ * that each cell costs only a reference.
+ * <P>
+ * The pool is a fixed-size cache: each value can be held in one of two slots
+ * chosen by its hash, and a new value replaces an older one. Memory use is
+ * therefore bounded no matter how many distinct values pass through, and
+ * frequent values stay pooled. Unlike String.intern(), nothing is held
+ * globally. Strings longer than the maximum length are not pooled, since long
+ * values rarely repeat.
+ * <P>
+ * A StringPool may be shared by many threads without locking. Threads may
+ * occasionally miss a value another thread has just pooled, which only costs
+ * a duplicate.
+ *
+ * @version 1.0
+ * @author August Detlefsen for CodeMagi, Inc.
+ */
+public class StringPool {
+
+    /**
+     * The default number of slots.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * The default length of the longest String to pool.
+     */
+    public static final int DEFAULT_MAX_LENGTH = 64;
+
+    private final String[] table;
+    private final int mask;
+
+    private int maxLength = DEFAULT_MAX_LENGTH;
+
+    /**
+     * Constructs a pool with the default capacity.
+     */
+    public StringPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a pool holding up to the specified number of Strings, rounded
+     * up to a power of two.
+     *
+     * @exception IllegalArgumentException If the capacity is not positive
+     */
+    public StringPool(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+
+        int size = Math.max(2, Integer.highestOneBit(capacity * 2 - 1));
+        table = new String[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Sets the length of the longest String to pool. Longer Strings are
+     * returned as they are.
+     */
+    public void setMaxLength(int newValue) {
+        maxLength = newValue;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    /**
+     * Returns the pooled String equal to a value, or pools the value and
+     * returns it.
+     *
+     * @param value The String to deduplicate. May be null.
+     * @return String An equal String, or the value itself
+     */
+    public String intern(String value) {
+        if (value == null || value.length() > maxLength) {
+            return value;
+        }
+
+        int hash = value.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+
+        String first = table[slot];
+        if (value.equals(first)) {
+            return first;
+        }
+
+        String second = table[slot ^ 1];
+        if (value.equals(second)) {
+            return second;
+        }
+
+        //the most recent value takes the first slot; the one it displaces moves to the second
+        if (first != null) {
+            table[slot ^ 1] = first;
+        }
+        table[slot] = value;
+
+        return value;
+    }
+
+    /**
+     * Empties the pool.
+     */
+    public void clear() {
+        java.util.Arrays.fill(table, null);
+    }
+
+}